@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.content;
+
+import java.io.File;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabase.CursorFactory;
+
+/**
+ * The database related parts of Android's Context. All databases are files in one directory.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class Context {
+
+	public static final int MODE_PRIVATE = 0x0000;
+
+	private final File databaseDir;
+
+	/**
+	 * @param databaseDir the directory for all databases. It will be created when needed.
+	 */
+	public Context(final File databaseDir) {
+		this.databaseDir = databaseDir;
+	}
+
+	public File getDatabasePath(final String name) {
+		return new File(databaseDir, name);
+	}
+
+	public SQLiteDatabase openOrCreateDatabase(final String name, final int mode, final CursorFactory factory) {
+		if (!databaseDir.isDirectory() && !databaseDir.mkdirs()) {
+			throw new IllegalStateException("Could not create " + databaseDir);
+		}
+		return SQLiteDatabase.openOrCreateDatabase(getDatabasePath(name), factory);
+	}
+
+	public boolean deleteDatabase(final String name) {
+		File file = getDatabasePath(name);
+		new File(file.getPath() + "-journal").delete();
+		new File(file.getPath() + "-wal").delete();
+		new File(file.getPath() + "-shm").delete();
+		return file.delete();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database;
+
+/**
+ * Delegates all calls to another cursor. Override single methods to change its behaviour.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class CursorWrapper implements Cursor {
+
+	private final Cursor cursor;
+
+	public CursorWrapper(final Cursor cursor) {
+		this.cursor = cursor;
+	}
+
+	public int getCount() {
+		return cursor.getCount();
+	}
+
+	public int getPosition() {
+		return cursor.getPosition();
+	}
+
+	public boolean move(final int offset) {
+		return cursor.move(offset);
+	}
+
+	public boolean moveToPosition(final int position) {
+		return cursor.moveToPosition(position);
+	}
+
+	public boolean moveToFirst() {
+		return cursor.moveToFirst();
+	}
+
+	public boolean moveToLast() {
+		return cursor.moveToLast();
+	}
+
+	public boolean moveToNext() {
+		return cursor.moveToNext();
+	}
+
+	public boolean moveToPrevious() {
+		return cursor.moveToPrevious();
+	}
+
+	public boolean isFirst() {
+		return cursor.isFirst();
+	}
+
+	public boolean isLast() {
+		return cursor.isLast();
+	}
+
+	public boolean isBeforeFirst() {
+		return cursor.isBeforeFirst();
+	}
+
+	public boolean isAfterLast() {
+		return cursor.isAfterLast();
+	}
+
+	public int getColumnIndex(final String columnName) {
+		return cursor.getColumnIndex(columnName);
+	}
+
+	public int getColumnIndexOrThrow(final String columnName) throws IllegalArgumentException {
+		return cursor.getColumnIndexOrThrow(columnName);
+	}
+
+	public String getColumnName(final int columnIndex) {
+		return cursor.getColumnName(columnIndex);
+	}
+
+	public String[] getColumnNames() {
+		return cursor.getColumnNames();
+	}
+
+	public int getColumnCount() {
+		return cursor.getColumnCount();
+	}
+
+	public byte[] getBlob(final int columnIndex) {
+		return cursor.getBlob(columnIndex);
+	}
+
+	public String getString(final int columnIndex) {
+		return cursor.getString(columnIndex);
+	}
+
+	public short getShort(final int columnIndex) {
+		return cursor.getShort(columnIndex);
+	}
+
+	public int getInt(final int columnIndex) {
+		return cursor.getInt(columnIndex);
+	}
+
+	public long getLong(final int columnIndex) {
+		return cursor.getLong(columnIndex);
+	}
+
+	public float getFloat(final int columnIndex) {
+		return cursor.getFloat(columnIndex);
+	}
+
+	public double getDouble(final int columnIndex) {
+		return cursor.getDouble(columnIndex);
+	}
+
+	public boolean isNull(final int columnIndex) {
+		return cursor.isNull(columnIndex);
+	}
+
+	public void deactivate() {
+		cursor.deactivate();
+	}
+
+	public boolean requery() {
+		return cursor.requery();
+	}
+
+	public void close() {
+		cursor.close();
+	}
+
+	public boolean isClosed() {
+		return cursor.isClosed();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database;
+
+/**
+ * The used helpers of Android's DatabaseUtils.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class DatabaseUtils {
+
+	/**
+	 * Appends value as SQL string literal, single quotes will be doubled.
+	 */
+	public static void appendEscapedSQLString(final StringBuilder sb, final String value) {
+		sb.append('\'');
+		if (value.indexOf('\'') != -1) {
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\'') {
+					sb.append('\'');
+				}
+				sb.append(c);
+			}
+		} else {
+			sb.append(value);
+		}
+		sb.append('\'');
+	}
+
+	/**
+	 * @return value as SQL string literal.
+	 */
+	public static String sqlEscapeString(final String value) {
+		StringBuilder sb = new StringBuilder();
+		appendEscapedSQLString(sb, value);
+		return sb.toString();
+	}
+}
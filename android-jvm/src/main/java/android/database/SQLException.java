@@ -0,0 +1,38 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database;
+
+/**
+ * Thrown on SQL errors.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SQLException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SQLException() {
+	}
+
+	public SQLException(final String error) {
+		super(error);
+	}
+
+	public SQLException(final String error, final Throwable cause) {
+		super(error, cause);
+	}
+}
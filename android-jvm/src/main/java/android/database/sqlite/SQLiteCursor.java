@@ -0,0 +1,255 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.Cursor;
+
+/**
+ * A {@link Cursor} holding all rows of a query in memory, like Android's CursorWindow does. The values keep the
+ * storage class SQLite returned and will be converted on access the way Android does.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+class SQLiteCursor implements Cursor {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String[] columnNames;
+
+	private final List<Object[]> rows;
+
+	private int position = -1;
+
+	private boolean closed = false;
+
+	SQLiteCursor(final ResultSet resultSet) throws SQLException {
+		ResultSetMetaData meta = resultSet.getMetaData();
+		columnNames = new String[meta.getColumnCount()];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = meta.getColumnLabel(i + 1);
+		}
+		rows = new ArrayList<Object[]>();
+		while (resultSet.next()) {
+			Object[] row = new Object[columnNames.length];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = resultSet.getObject(i + 1);
+			}
+			rows.add(row);
+		}
+	}
+
+	public int getCount() {
+		return rows.size();
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public boolean move(final int offset) {
+		return moveToPosition(position + offset);
+	}
+
+	public boolean moveToPosition(final int newPosition) {
+		if (newPosition >= rows.size()) {
+			position = rows.size();
+			return false;
+		}
+		if (newPosition < 0) {
+			position = -1;
+			return false;
+		}
+		position = newPosition;
+		return true;
+	}
+
+	public boolean moveToFirst() {
+		return moveToPosition(0);
+	}
+
+	public boolean moveToLast() {
+		return moveToPosition(rows.size() - 1);
+	}
+
+	public boolean moveToNext() {
+		return moveToPosition(position + 1);
+	}
+
+	public boolean moveToPrevious() {
+		return moveToPosition(position - 1);
+	}
+
+	public boolean isFirst() {
+		return position == 0 && !rows.isEmpty();
+	}
+
+	public boolean isLast() {
+		return position == rows.size() - 1 && !rows.isEmpty();
+	}
+
+	public boolean isBeforeFirst() {
+		return rows.isEmpty() || position == -1;
+	}
+
+	public boolean isAfterLast() {
+		return rows.isEmpty() || position == rows.size();
+	}
+
+	public int getColumnIndex(final String columnName) {
+		//like Android: "table.column" matches "column".
+		String name = columnName;
+		int dot = name.lastIndexOf('.');
+		if (dot != -1) {
+			name = name.substring(dot + 1);
+		}
+		for (int i = 0; i < columnNames.length; i++) {
+			if (columnNames[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int getColumnIndexOrThrow(final String columnName) {
+		int index = getColumnIndex(columnName);
+		if (index < 0) {
+			throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+		}
+		return index;
+	}
+
+	public String getColumnName(final int columnIndex) {
+		return columnNames[columnIndex];
+	}
+
+	public String[] getColumnNames() {
+		return columnNames.clone();
+	}
+
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	private Object get(final int columnIndex) {
+		if (closed) {
+			throw new IllegalStateException("Cursor is closed");
+		}
+		if (position < 0 || position >= rows.size()) {
+			throw new IndexOutOfBoundsException("Index " + position + " requested, with a size of " + rows.size());
+		}
+		return rows.get(position)[columnIndex];
+	}
+
+	public byte[] getBlob(final int columnIndex) {
+		Object value = get(columnIndex);
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		return value.toString().getBytes(UTF8);
+	}
+
+	public String getString(final int columnIndex) {
+		Object value = get(columnIndex);
+		if (value == null || value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof byte[]) {
+			throw new SQLiteException("Unable to convert BLOB to string");
+		}
+		return value.toString();
+	}
+
+	public short getShort(final int columnIndex) {
+		return (short) getLong(columnIndex);
+	}
+
+	public int getInt(final int columnIndex) {
+		return (int) getLong(columnIndex);
+	}
+
+	public long getLong(final int columnIndex) {
+		Object value = get(columnIndex);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof String) {
+			try {
+				return Long.parseLong((String) value);
+			} catch (NumberFormatException e) {
+				return (long) parseDouble((String) value);
+			}
+		}
+		if (value instanceof byte[]) {
+			throw new SQLiteException("Unable to convert BLOB to long");
+		}
+		return 0L;
+	}
+
+	public float getFloat(final int columnIndex) {
+		return (float) getDouble(columnIndex);
+	}
+
+	public double getDouble(final int columnIndex) {
+		Object value = get(columnIndex);
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value instanceof String) {
+			return parseDouble((String) value);
+		}
+		if (value instanceof byte[]) {
+			throw new SQLiteException("Unable to convert BLOB to double");
+		}
+		return 0d;
+	}
+
+	private static double parseDouble(final String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return 0d;
+		}
+	}
+
+	public boolean isNull(final int columnIndex) {
+		return get(columnIndex) == null;
+	}
+
+	public void deactivate() {
+		//all rows are in memory.
+	}
+
+	public boolean requery() {
+		return false;
+	}
+
+	public void close() {
+		closed = true;
+		rows.clear();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+}
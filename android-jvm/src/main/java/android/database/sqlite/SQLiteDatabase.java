@@ -0,0 +1,464 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sqlite.SQLiteConfig;
+
+import android.database.Cursor;
+
+/**
+ * A connection to a SQLite database on top of sqlite-jdbc. It follows Android's semantics: each operation holds a
+ * reentrant lock of the connection, a transaction holds it from {@link #beginTransaction()} to
+ * {@link #endTransaction()}, transactions can be nested and the outermost one only commits when all inner ones were
+ * successful. Compiled queries are cached by their SQL text.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SQLiteDatabase {
+
+	public static final int OPEN_READWRITE = 0x00000000;
+
+	public static final int OPEN_READONLY = 0x00000001;
+
+	public static final int NO_LOCALIZED_COLLATORS = 0x00000010;
+
+	public static final int CREATE_IF_NECESSARY = 0x10000000;
+
+	private static final String MEMORY = ":memory:";
+
+	private static final String JDBC_PREFIX = "jdbc:sqlite:";
+
+	/** Number of compiled queries per connection. */
+	private static final int MAX_SQL_CACHE_SIZE = 100;
+
+	/** Not supported, always pass <code>null</code>. */
+	public interface CursorFactory {
+	}
+
+	private final String path;
+
+	private final Connection connection;
+
+	private final boolean readOnly;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	private final Map<String, PreparedStatement> queries;
+
+	private PreparedStatement lastInsertRowId;
+
+	private boolean transactionSuccessful;
+
+	private boolean innerTransactionSuccessful;
+
+	private SQLiteDatabase(final String path, final Connection connection, final boolean readOnly) {
+		this.path = path;
+		this.connection = connection;
+		this.readOnly = readOnly;
+		this.queries = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > MAX_SQL_CACHE_SIZE) {
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Opens the database file.
+	 *
+	 * @param path the file, or <code>:memory:</code> for an in-memory database.
+	 * @param factory not supported, pass <code>null</code>.
+	 * @param flags {@link #OPEN_READWRITE} or {@link #OPEN_READONLY}, optionally with {@link #CREATE_IF_NECESSARY}.
+	 * @return the opened database.
+	 */
+	public static SQLiteDatabase openDatabase(final String path, final CursorFactory factory, final int flags) {
+		boolean readOnly = (flags & OPEN_READONLY) != 0;
+		if ((flags & CREATE_IF_NECESSARY) == 0 && !MEMORY.equals(path) && !new File(path).exists()) {
+			throw new SQLiteException("unable to open database file " + path);
+		}
+		SQLiteConfig config = new SQLiteConfig();
+		config.setReadOnly(readOnly);
+		try {
+			Connection connection = DriverManager.getConnection(JDBC_PREFIX + path, config.toProperties());
+			return new SQLiteDatabase(path, connection, readOnly);
+		} catch (SQLException e) {
+			throw wrap(e, "open " + path);
+		}
+	}
+
+	/**
+	 * Uses a JDBC connection opened elsewhere, e.g. taken from a connection pool or configured with its own
+	 * {@link SQLiteConfig}. It will be closed by {@link #close()}.
+	 *
+	 * @param connection an open connection of the sqlite-jdbc driver.
+	 * @return the database.
+	 */
+	public static SQLiteDatabase wrap(final Connection connection) {
+		try {
+			String url = connection.getMetaData().getURL();
+			String path = url.startsWith(JDBC_PREFIX) ? url.substring(JDBC_PREFIX.length()) : url;
+			return new SQLiteDatabase(path, connection, connection.isReadOnly());
+		} catch (SQLException e) {
+			throw wrap(e, "wrap " + connection);
+		}
+	}
+
+	public static SQLiteDatabase openOrCreateDatabase(final String path, final CursorFactory factory) {
+		return openDatabase(path, factory, CREATE_IF_NECESSARY);
+	}
+
+	public static SQLiteDatabase openOrCreateDatabase(final File file, final CursorFactory factory) {
+		return openOrCreateDatabase(file.getPath(), factory);
+	}
+
+	/**
+	 * @return a new in-memory database.
+	 */
+	public static SQLiteDatabase create(final CursorFactory factory) {
+		return openDatabase(MEMORY, factory, CREATE_IF_NECESSARY);
+	}
+
+	void lock() {
+		lock.lock();
+	}
+
+	void unlock() {
+		lock.unlock();
+	}
+
+	public boolean isDbLockedByCurrentThread() {
+		return lock.isHeldByCurrentThread();
+	}
+
+	/**
+	 * Begins a transaction in EXCLUSIVE mode. Transactions can be nested.
+	 */
+	public void beginTransaction() {
+		lock();
+		boolean ok = false;
+		try {
+			if (lock.getHoldCount() > 1) {
+				if (innerTransactionSuccessful) {
+					throw new IllegalStateException(
+						"Cannot call beginTransaction between calling setTransactionSuccessful and endTransaction");
+				}
+				ok = true;
+				return;
+			}
+			execSQL("BEGIN EXCLUSIVE");
+			transactionSuccessful = true;
+			innerTransactionSuccessful = false;
+			ok = true;
+		} finally {
+			if (!ok) {
+				unlock();
+			}
+		}
+	}
+
+	/**
+	 * Marks the current transaction as successful. Don't do any more database work before {@link #endTransaction()}.
+	 */
+	public void setTransactionSuccessful() {
+		if (!lock.isHeldByCurrentThread()) {
+			throw new IllegalStateException("no transaction pending");
+		}
+		if (innerTransactionSuccessful) {
+			throw new IllegalStateException(
+				"setTransactionSuccessful may only be called once per call to beginTransaction");
+		}
+		innerTransactionSuccessful = true;
+	}
+
+	/**
+	 * Ends the current transaction. The outermost one commits, when all were marked successful, otherwise it rolls
+	 * back.
+	 */
+	public void endTransaction() {
+		if (!lock.isHeldByCurrentThread()) {
+			throw new IllegalStateException("no transaction pending");
+		}
+		try {
+			if (innerTransactionSuccessful) {
+				innerTransactionSuccessful = false;
+			} else {
+				transactionSuccessful = false;
+			}
+			if (lock.getHoldCount() != 1) {
+				return;
+			}
+			execSQL(transactionSuccessful ? "COMMIT" : "ROLLBACK");
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, when the current thread holds the lock of this connection, e.g. in a transaction.
+	 */
+	public boolean inTransaction() {
+		return lock.getHoldCount() > 0;
+	}
+
+	public void execSQL(final String sql) {
+		lock();
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute(sql);
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw wrap(e, sql);
+		} finally {
+			unlock();
+		}
+	}
+
+	public void execSQL(final String sql, final Object[] bindArgs) {
+		lock();
+		try {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				for (int i = 0; i < bindArgs.length; i++) {
+					statement.setObject(i + 1, bindArgs[i]);
+				}
+				statement.execute();
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw wrap(e, sql);
+		} finally {
+			unlock();
+		}
+	}
+
+	public SQLiteStatement compileStatement(final String sql) {
+		lock();
+		try {
+			return new SQLiteStatement(this, sql, connection.prepareStatement(sql));
+		} catch (SQLException e) {
+			throw wrap(e, sql);
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Runs the query and reads all rows into the returned cursor.
+	 *
+	 * @param sql the SQL with <code>?</code> placeholders.
+	 * @param selectionArgs the values, which are bound as strings.
+	 */
+	public Cursor rawQuery(final String sql, final String[] selectionArgs) {
+		lock();
+		try {
+			PreparedStatement statement = queries.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				queries.put(sql, statement);
+			}
+			statement.clearParameters();
+			if (selectionArgs != null) {
+				for (int i = 0; i < selectionArgs.length; i++) {
+					if (selectionArgs[i] == null) {
+						throw new IllegalArgumentException("the bind value at index " + (i + 1) + " is null");
+					}
+					statement.setString(i + 1, selectionArgs[i]);
+				}
+			}
+			ResultSet rs = statement.executeQuery();
+			try {
+				return new SQLiteCursor(rs);
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw wrap(e, sql);
+		} finally {
+			unlock();
+		}
+	}
+
+	public Cursor query(final String table, final String[] columns, final String selection,
+			final String[] selectionArgs, final String groupBy, final String having, final String orderBy) {
+		return query(false, table, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+	}
+
+	public Cursor query(final String table, final String[] columns, final String selection,
+			final String[] selectionArgs, final String groupBy, final String having, final String orderBy,
+			final String limit) {
+		return query(false, table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
+	}
+
+	public Cursor query(final boolean distinct, final String table, final String[] columns, final String selection,
+			final String[] selectionArgs, final String groupBy, final String having, final String orderBy,
+			final String limit) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		if (distinct) {
+			sql.append("DISTINCT ");
+		}
+		if (columns == null || columns.length == 0) {
+			sql.append('*');
+		} else {
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0) {
+					sql.append(", ");
+				}
+				sql.append(columns[i]);
+			}
+		}
+		sql.append(" FROM ").append(table);
+		appendClause(sql, " WHERE ", selection);
+		appendClause(sql, " GROUP BY ", groupBy);
+		appendClause(sql, " HAVING ", having);
+		appendClause(sql, " ORDER BY ", orderBy);
+		appendClause(sql, " LIMIT ", limit);
+		return rawQuery(sql.toString(), selectionArgs);
+	}
+
+	private static void appendClause(final StringBuilder sql, final String name, final String clause) {
+		if (clause != null && clause.length() > 0) {
+			sql.append(name).append(clause);
+		}
+	}
+
+	/**
+	 * @return the number of deleted rows.
+	 */
+	public int delete(final String table, final String whereClause, final String[] whereArgs) {
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(table);
+		appendClause(sql, " WHERE ", whereClause);
+		lock();
+		try {
+			PreparedStatement statement = connection.prepareStatement(sql.toString());
+			try {
+				if (whereArgs != null) {
+					for (int i = 0; i < whereArgs.length; i++) {
+						statement.setString(i + 1, whereArgs[i]);
+					}
+				}
+				return statement.executeUpdate();
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw wrap(e, sql.toString());
+		} finally {
+			unlock();
+		}
+	}
+
+	long lastInsertRowId() throws SQLException {
+		if (lastInsertRowId == null) {
+			lastInsertRowId = connection.prepareStatement("SELECT last_insert_rowid()");
+		}
+		ResultSet rs = lastInsertRowId.executeQuery();
+		try {
+			return rs.next() ? rs.getLong(1) : -1L;
+		} finally {
+			rs.close();
+		}
+	}
+
+	public int getVersion() {
+		Cursor c = rawQuery("PRAGMA user_version", null);
+		try {
+			return c.moveToFirst() ? c.getInt(0) : 0;
+		} finally {
+			c.close();
+		}
+	}
+
+	public void setVersion(final int version) {
+		execSQL("PRAGMA user_version = " + version);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	public boolean isOpen() {
+		try {
+			return !connection.isClosed();
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes all compiled queries and the connection.
+	 */
+	public void close() {
+		lock();
+		try {
+			for (PreparedStatement statement : queries.values()) {
+				closeQuietly(statement);
+			}
+			queries.clear();
+			closeQuietly(lastInsertRowId);
+			connection.close();
+		} catch (SQLException e) {
+			throw wrap(e, "close " + path);
+		} finally {
+			unlock();
+		}
+	}
+
+	private static void closeQuietly(final Statement statement) {
+		if (statement == null) {
+			return;
+		}
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			//nothing to do
+		}
+	}
+
+	static SQLiteException wrap(final SQLException e, final String sql) {
+		return new SQLiteException(e.getMessage() + ", while executing: " + sql, e);
+	}
+
+	@Override
+	public String toString() {
+		return "SQLiteDatabase[" + path + "]";
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * A compiled statement of a {@link SQLiteDatabase}. Bound values are kept until they are rebound or cleared.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SQLiteStatement {
+
+	private final SQLiteDatabase db;
+
+	private final String sql;
+
+	private final PreparedStatement statement;
+
+	SQLiteStatement(final SQLiteDatabase db, final String sql, final PreparedStatement statement) {
+		this.db = db;
+		this.sql = sql;
+		this.statement = statement;
+	}
+
+	public void bindNull(final int index) {
+		try {
+			statement.setNull(index, Types.NULL);
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	public void bindLong(final int index, final long value) {
+		try {
+			statement.setLong(index, value);
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	public void bindDouble(final int index, final double value) {
+		try {
+			statement.setDouble(index, value);
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	public void bindString(final int index, final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("the bind value at index " + index + " is null");
+		}
+		try {
+			statement.setString(index, value);
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	public void bindBlob(final int index, final byte[] value) {
+		if (value == null) {
+			throw new IllegalArgumentException("the bind value at index " + index + " is null");
+		}
+		try {
+			statement.setBytes(index, value);
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	public void clearBindings() {
+		try {
+			statement.clearParameters();
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	/**
+	 * Executes a statement, which returns no rows.
+	 */
+	public void execute() {
+		db.lock();
+		try {
+			statement.execute();
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		} finally {
+			db.unlock();
+		}
+	}
+
+	/**
+	 * Executes an INSERT.
+	 *
+	 * @return the rowid of the inserted row or -1, when nothing was inserted.
+	 */
+	public long executeInsert() {
+		db.lock();
+		try {
+			if (statement.executeUpdate() <= 0) {
+				return -1L;
+			}
+			return db.lastInsertRowId();
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		} finally {
+			db.unlock();
+		}
+	}
+
+	/**
+	 * @return the first column of the first row.
+	 * @throws SQLiteDoneException when there is no row.
+	 */
+	public long simpleQueryForLong() {
+		db.lock();
+		try {
+			ResultSet rs = statement.executeQuery();
+			try {
+				if (!rs.next()) {
+					throw new SQLiteDoneException("no rows for " + sql);
+				}
+				return rs.getLong(1);
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		} finally {
+			db.unlock();
+		}
+	}
+
+	/**
+	 * @return the first column of the first row.
+	 * @throws SQLiteDoneException when there is no row.
+	 */
+	public String simpleQueryForString() {
+		db.lock();
+		try {
+			ResultSet rs = statement.executeQuery();
+			try {
+				if (!rs.next()) {
+					throw new SQLiteDoneException("no rows for " + sql);
+				}
+				return rs.getString(1);
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		} finally {
+			db.unlock();
+		}
+	}
+
+	public void close() {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			throw SQLiteDatabase.wrap(e, sql);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SQLiteStatement[" + sql + "]";
+	}
+}
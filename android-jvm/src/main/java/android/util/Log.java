@@ -0,0 +1,111 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package android.util;
+
+/**
+ * Logs to {@link System#err}. Only messages with at least the level of the system property
+ * <code>android.util.Log.level</code> (one of the level constants, default {@link #WARN}) will be printed.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public final class Log {
+
+	public static final int VERBOSE = 2;
+
+	public static final int DEBUG = 3;
+
+	public static final int INFO = 4;
+
+	public static final int WARN = 5;
+
+	public static final int ERROR = 6;
+
+	public static final int ASSERT = 7;
+
+	private static final String[] LEVELS = { "", "", "V", "D", "I", "W", "E", "A" };
+
+	private static final int level = Integer.getInteger("android.util.Log.level", WARN);
+
+	private Log() {
+	}
+
+	public static boolean isLoggable(final String tag, final int level) {
+		return level >= Log.level;
+	}
+
+	public static int v(final String tag, final String msg) {
+		return println(VERBOSE, tag, msg, null);
+	}
+
+	public static int v(final String tag, final String msg, final Throwable tr) {
+		return println(VERBOSE, tag, msg, tr);
+	}
+
+	public static int d(final String tag, final String msg) {
+		return println(DEBUG, tag, msg, null);
+	}
+
+	public static int d(final String tag, final String msg, final Throwable tr) {
+		return println(DEBUG, tag, msg, tr);
+	}
+
+	public static int i(final String tag, final String msg) {
+		return println(INFO, tag, msg, null);
+	}
+
+	public static int i(final String tag, final String msg, final Throwable tr) {
+		return println(INFO, tag, msg, tr);
+	}
+
+	public static int w(final String tag, final String msg) {
+		return println(WARN, tag, msg, null);
+	}
+
+	public static int w(final String tag, final String msg, final Throwable tr) {
+		return println(WARN, tag, msg, tr);
+	}
+
+	public static int w(final String tag, final Throwable tr) {
+		return println(WARN, tag, "", tr);
+	}
+
+	public static int e(final String tag, final String msg) {
+		return println(ERROR, tag, msg, null);
+	}
+
+	public static int e(final String tag, final String msg, final Throwable tr) {
+		return println(ERROR, tag, msg, tr);
+	}
+
+	public static int println(final int priority, final String tag, final String msg) {
+		return println(priority, tag, msg, null);
+	}
+
+	private static int println(final int priority, final String tag, final String msg, final Throwable tr) {
+		if (!isLoggable(tag, priority)) {
+			return 0;
+		}
+		String line = LEVELS[priority] + "/" + tag + ": " + msg;
+		synchronized (System.err) {
+			System.err.println(line);
+			if (tr != null) {
+				tr.printStackTrace();
+			}
+		}
+		return line.length();
+	}
+}
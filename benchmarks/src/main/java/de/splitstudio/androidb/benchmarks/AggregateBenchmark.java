@@ -0,0 +1,86 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.splitstudio.androidb.Table;
+
+/**
+ * Counting rows with {@link Table#count(Class, String, Object...)} compared to loading them with
+ * {@link Table#all(Class)}, which was the only way before.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregateBenchmark {
+
+	@Param({ "100", "10000" })
+	public int rows;
+
+	private BenchmarkDb db;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		Table.insertAll(BenchmarkDb.rows(Narrow.class, rows));
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		db.close();
+	}
+
+	@Benchmark
+	public int allSize() {
+		return Table.all(Narrow.class).size();
+	}
+
+	@Benchmark
+	public int count() {
+		return Table.count(Narrow.class, null);
+	}
+
+	@Benchmark
+	public boolean exists() {
+		return Table.exists(Narrow.class, "amount > ?", 0);
+	}
+
+	@Benchmark
+	public double sum() {
+		return Table.sum(Narrow.class, "amount", null);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.splitstudio.androidb.Table;
+
+/**
+ * Batched writes of {@link #batchSize} rows per operation. Divide the scores by the batch size to compare them with
+ * the single-row writes of {@link WriteBenchmark}.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchWriteBenchmark {
+
+	@Param({ "Narrow", "Wide", "NarrowReflected", "WideReflected" })
+	public String entity;
+
+	@Param({ "100", "1000" })
+	public int batchSize;
+
+	private BenchmarkDb db;
+
+	private List<? extends Table> batch;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		Class<? extends Table> klaas = BenchmarkDb.entity(entity);
+		batch = BenchmarkDb.rows(klaas, batchSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		db.close();
+	}
+
+	/**
+	 * {@link #batchSize} INSERTs in chunked transactions.
+	 */
+	@Benchmark
+	public int insertAll() {
+		for (Table table : batch) {
+			table.setId(null);
+		}
+		return Table.insertAll(batch);
+	}
+
+	/**
+	 * {@link #batchSize} saves through the write-behind queue, waiting for the last commit.
+	 */
+	@Benchmark
+	public boolean saveAsync() throws Exception {
+		Future<Boolean> last = null;
+		for (Table table : batch) {
+			table.setId(null);
+			last = table.saveAsync();
+		}
+		return last.get();
+	}
+}
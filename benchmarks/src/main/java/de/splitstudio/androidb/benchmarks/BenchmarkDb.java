@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import de.splitstudio.androidb.Table;
+
+/**
+ * A fresh database in a temporary directory, opened with {@link Table#openOrCreateDB(Context)} like on a device.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+final class BenchmarkDb {
+
+	private final File dir;
+
+	private BenchmarkDb(final File dir) {
+		this.dir = dir;
+	}
+
+	static BenchmarkDb open() throws IOException {
+		File dir = File.createTempFile("androidb-bench", "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Could not create " + dir);
+		}
+		Table.openOrCreateDB(new Context(dir));
+		return new BenchmarkDb(dir);
+	}
+
+	void close() {
+		Table.closeDB();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Instantiates count rows of klaas filled with {@link #fill(Table, int)}.
+	 */
+	static <T extends Table> List<T> rows(final Class<T> klaas, final int count) throws Exception {
+		List<T> rows = new ArrayList<T>(count);
+		for (int i = 0; i < count; i++) {
+			rows.add(fill(klaas.getDeclaredConstructor().newInstance(), i));
+		}
+		return rows;
+	}
+
+	static <T extends Table> T fill(final T table, final int i) {
+		if (table instanceof Narrow) {
+			((Narrow) table).fill(i);
+		} else if (table instanceof NarrowReflected) {
+			((NarrowReflected) table).fill(i);
+		} else if (table instanceof Wide) {
+			((Wide) table).fill(i);
+		} else if (table instanceof WideReflected) {
+			((WideReflected) table).fill(i);
+		}
+		return table;
+	}
+
+	@SuppressWarnings("unchecked")
+	static Class<? extends Table> entity(final String name) throws ClassNotFoundException {
+		return (Class<? extends Table>) Class.forName(BenchmarkDb.class.getPackage().getName() + "." + name);
+	}
+}
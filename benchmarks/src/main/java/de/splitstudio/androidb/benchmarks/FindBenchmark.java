@@ -0,0 +1,95 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.splitstudio.androidb.EntityCache;
+import de.splitstudio.androidb.Table;
+
+/**
+ * {@link Table#find(Class, long)} of random ids out of {@link #ROWS} rows. With <code>cache=hit</code> all rows are
+ * cached, with <code>cache=miss</code> the {@link EntityCache} is too small, so nearly every find misses and replaces
+ * an entry.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindBenchmark {
+
+	private static final int ROWS = 10000;
+
+	@Param({ "Narrow", "Wide", "NarrowReflected", "WideReflected" })
+	public String entity;
+
+	@Param({ "none", "hit", "miss" })
+	public String cache;
+
+	private BenchmarkDb db;
+
+	private Class<? extends Table> klaas;
+
+	private final Random random = new Random(42);
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		klaas = BenchmarkDb.entity(entity);
+		Table.insertAll(BenchmarkDb.rows(klaas, ROWS));
+		if ("hit".equals(cache)) {
+			Table.enableCache(ROWS);
+			for (long id = 1; id <= ROWS; id++) {
+				Table.find(klaas, id);
+			}
+		} else if ("miss".equals(cache)) {
+			Table.enableCache(16);
+		} else {
+			Table.disableCache();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		Table.disableCache();
+		db.close();
+	}
+
+	@Benchmark
+	public Table find() {
+		return Table.find(klaas, 1 + random.nextInt(ROWS));
+	}
+}
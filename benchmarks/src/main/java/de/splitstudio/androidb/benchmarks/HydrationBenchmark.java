@@ -0,0 +1,118 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.Table;
+import de.splitstudio.androidb.TableIterator;
+
+/**
+ * Loading {@link #rows} rows of narrow and wide tables, mapped by generated binders or by reflection.
+ * {@link #query()} only runs the query, so the difference to {@link #all()} is the cost of hydration.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HydrationBenchmark {
+
+	@Param({ "Narrow", "Wide", "NarrowReflected", "WideReflected" })
+	public String entity;
+
+	@Param({ "10", "100", "1000" })
+	public int rows;
+
+	private BenchmarkDb db;
+
+	private Class<? extends Table> klaas;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		klaas = BenchmarkDb.entity(entity);
+		Table.insertAll(BenchmarkDb.rows(klaas, rows));
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		db.close();
+	}
+
+	/**
+	 * The query without hydration.
+	 */
+	@Benchmark
+	public int query() {
+		Cursor c = Table.getReadableDb().query(Table.getTableName(klaas), null, null, null, null, null, null);
+		try {
+			return c.getCount();
+		} finally {
+			c.close();
+		}
+	}
+
+	/**
+	 * Query and hydrate all rows into a list (fillAll).
+	 */
+	@Benchmark
+	public List<? extends Table> all() {
+		return Table.all(klaas);
+	}
+
+	/**
+	 * Query and stream all rows into new instances.
+	 */
+	@Benchmark
+	public void stream(final Blackhole bh) {
+		for (Table table : Table.stream(klaas, null, null)) {
+			bh.consume(table);
+		}
+	}
+
+	/**
+	 * Query and stream all rows into one reused instance.
+	 */
+	@Benchmark
+	public void streamReused(final Blackhole bh) {
+		TableIterator<? extends Table> it = Table.stream(klaas, null, null, true);
+		while (it.hasNext()) {
+			bh.consume(it.next().getId());
+		}
+	}
+}
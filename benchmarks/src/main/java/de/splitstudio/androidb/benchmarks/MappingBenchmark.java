@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.Table;
+import de.splitstudio.androidb.TypeMapper;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.util.ReflectionHelper;
+
+/**
+ * The reflection based building blocks: {@link ReflectionHelper#getFields(Class)} and
+ * {@link TypeMapper#getTypedValue(Cursor, int, java.lang.reflect.Type)} for all columns of a row.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+	@Param({ "Narrow", "Wide" })
+	public String entity;
+
+	private BenchmarkDb db;
+
+	private Class<? extends Table> klaas;
+
+	private Cursor cursor;
+
+	private Field[] fields;
+
+	private int[] indices;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		klaas = BenchmarkDb.entity(entity);
+		Table.insertAll(BenchmarkDb.rows(klaas, 1));
+		cursor = Table.getReadableDb().query(Table.getTableName(klaas), null, null, null, null, null, null);
+		cursor.moveToFirst();
+		List<Field> columns = new ArrayList<Field>();
+		for (Field field : ReflectionHelper.getFields(klaas)) {
+			if (field.isAnnotationPresent(Column.class)) {
+				columns.add(field);
+			}
+		}
+		fields = columns.toArray(new Field[columns.size()]);
+		indices = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			indices[i] = cursor.getColumnIndex(fields[i].getName());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		cursor.close();
+		db.close();
+	}
+
+	@Benchmark
+	public List<Field> getFields() {
+		return ReflectionHelper.getFields(klaas);
+	}
+
+	@Benchmark
+	public void getTypedValues(final Blackhole bh) {
+		for (int i = 0; i < fields.length; i++) {
+			bh.consume(TypeMapper.getTypedValue(cursor, indices[i], fields[i].getType()));
+		}
+	}
+}
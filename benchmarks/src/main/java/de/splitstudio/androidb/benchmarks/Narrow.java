@@ -0,0 +1,63 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import de.splitstudio.androidb.Table;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * Three columns. Its columns are package-private, so a generated TableBinder maps it.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@TableMetaData(version = 1)
+public class Narrow extends Table {
+
+	private static final long serialVersionUID = 1L;
+
+	@Column
+	long created;
+
+	@Column
+	String name;
+
+	@Column(notNull = true)
+	int amount;
+
+	public Narrow() {
+		super();
+	}
+
+	/**
+	 * Sets all columns to values derived from i.
+	 */
+	public Narrow fill(final int i) {
+		created = 1300000000000L + i;
+		name = "row " + i;
+		amount = i;
+		return this;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public void setAmount(final int amount) {
+		this.amount = amount;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import de.splitstudio.androidb.Table;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * Sixteen columns. Its columns are package-private, so a generated TableBinder maps it.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@TableMetaData(version = 1)
+public class Wide extends Table {
+
+	private static final long serialVersionUID = 1L;
+
+	@Column
+	long created;
+
+	@Column
+	String name;
+
+	@Column(notNull = true)
+	int amount;
+
+	@Column
+	String text1;
+
+	@Column
+	double value1;
+
+	@Column
+	Integer count1;
+
+	@Column
+	String text2;
+
+	@Column
+	double value2;
+
+	@Column
+	Integer count2;
+
+	@Column
+	String text3;
+
+	@Column
+	double value3;
+
+	@Column
+	Integer count3;
+
+	@Column
+	String text4;
+
+	@Column
+	double value4;
+
+	@Column
+	Integer count4;
+
+	@Column
+	Long reference;
+
+	public Wide() {
+		super();
+	}
+
+	/**
+	 * Sets all columns to values derived from i.
+	 */
+	public Wide fill(final int i) {
+		created = 1300000000000L + i;
+		name = "row " + i;
+		amount = i;
+		text1 = "text 1 of row " + i;
+		value1 = i * 1.5d;
+		count1 = i % 7 == 0 ? null : Integer.valueOf(i + 1);
+		text2 = "text 2 of row " + i;
+		value2 = i * 2.5d;
+		count2 = i % 7 == 0 ? null : Integer.valueOf(i + 2);
+		text3 = "text 3 of row " + i;
+		value3 = i * 3.5d;
+		count3 = i % 7 == 0 ? null : Integer.valueOf(i + 3);
+		text4 = "text 4 of row " + i;
+		value4 = i * 4.5d;
+		count4 = i % 7 == 0 ? null : Integer.valueOf(i + 4);
+		reference = Long.valueOf(i);
+		return this;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public void setAmount(final int amount) {
+		this.amount = amount;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.splitstudio.androidb.Table;
+
+/**
+ * Single-row writes, each in its own transaction. Compare them with {@link BatchWriteBenchmark}.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+	@Param({ "Narrow", "Wide", "NarrowReflected", "WideReflected" })
+	public String entity;
+
+	private BenchmarkDb db;
+
+	private Table row;
+
+	private Table updated;
+
+	private int counter = 0;
+
+	@Setup(Level.Trial)
+	public void open() throws Exception {
+		db = BenchmarkDb.open();
+		Class<? extends Table> klaas = BenchmarkDb.entity(entity);
+		row = BenchmarkDb.fill(klaas.getDeclaredConstructor().newInstance(), 0);
+		updated = BenchmarkDb.fill(klaas.getDeclaredConstructor().newInstance(), 0);
+		updated.insert();
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		db.close();
+	}
+
+	/**
+	 * One INSERT in its own transaction.
+	 */
+	@Benchmark
+	public boolean insert() {
+		row.setId(null);
+		return row.insert();
+	}
+
+	/**
+	 * UPDATE of a single changed column.
+	 */
+	@Benchmark
+	public boolean updateOneColumn() {
+		setAmount(updated, ++counter);
+		return updated.update();
+	}
+
+	private static void setAmount(final Table table, final int amount) {
+		if (table instanceof Narrow) {
+			((Narrow) table).setAmount(amount);
+		} else if (table instanceof NarrowReflected) {
+			((NarrowReflected) table).setAmount(amount);
+		} else if (table instanceof Wide) {
+			((Wide) table).setAmount(amount);
+		} else {
+			((WideReflected) table).setAmount(amount);
+		}
+	}
+}
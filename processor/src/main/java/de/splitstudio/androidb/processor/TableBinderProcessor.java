@@ -0,0 +1,307 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a <code>YourTable$$TableBinder</code> for each table class with {@link #COLUMN} fields or a
+ * {@link #TABLE_META_DATA} annotation. The binder reads and writes all columns without reflection. Tables, which can't
+ * be bound directly (private, final or static columns, unsupported types, nested or abstract classes, no public no-arg
+ * constructor), are skipped with a note and will use reflection at runtime.<br/>
+ * The column order has to match the runtime schema: {@link #PRIMARY_KEY} first, then all columns in declaration
+ * order.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@SupportedAnnotationTypes( { TableBinderProcessor.COLUMN, TableBinderProcessor.TABLE_META_DATA })
+public class TableBinderProcessor extends AbstractProcessor {
+
+	static final String COLUMN = "de.splitstudio.androidb.annotation.Column";
+
+	static final String TABLE_META_DATA = "de.splitstudio.androidb.annotation.TableMetaData";
+
+	static final String TABLE = "de.splitstudio.androidb.Table";
+
+	static final String PRIMARY_KEY = "_id";
+
+	static final String SUFFIX = "$$TableBinder";
+
+	/** How a supported field type is read from a cursor and bound to a statement. */
+	private enum Codec {
+		//@formatter:off
+		LONG("long", "bindLong", "c.getLong(index)", false),
+		INT("int", "bindLong", "c.getInt(index)", false),
+		SHORT("short", "bindLong", "c.getShort(index)", false),
+		BYTE("byte", "bindLong", "(byte) c.getShort(index)", false),
+		CHAR("char", "bindLong", "(char) c.getShort(index)", false),
+		DOUBLE("double", "bindDouble", "c.getDouble(index)", false),
+		FLOAT("float", "bindDouble", "c.getFloat(index)", false),
+		BOXED_LONG("java.lang.Long", "bindLong", "Long.valueOf(c.getLong(index))", true),
+		BOXED_INT("java.lang.Integer", "bindLong", "Integer.valueOf(c.getInt(index))", true),
+		BOXED_SHORT("java.lang.Short", "bindLong", "Short.valueOf(c.getShort(index))", true),
+		BOXED_BYTE("java.lang.Byte", "bindLong", "Byte.valueOf((byte) c.getShort(index))", true),
+		BOXED_DOUBLE("java.lang.Double", "bindDouble", "Double.valueOf(c.getDouble(index))", true),
+		BOXED_FLOAT("java.lang.Float", "bindDouble", "Float.valueOf(c.getFloat(index))", true),
+		STRING("java.lang.String", "bindString", "c.getString(index)", true),
+		BLOB("byte[]", "bindBlob", "c.getBlob(index)", true);
+		//@formatter:on
+
+		final String type;
+
+		final String bindMethod;
+
+		final String read;
+
+		final boolean nullable;
+
+		Codec(final String type, final String bindMethod, final String read, final boolean nullable) {
+			this.type = type;
+			this.bindMethod = bindMethod;
+			this.read = read;
+			this.nullable = nullable;
+		}
+
+		static Codec of(final TypeMirror type) {
+			String name = type.toString();
+			for (Codec codec : values()) {
+				if (codec.type.equals(name)) {
+					return codec;
+				}
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		Set<TypeElement> tables = new LinkedHashSet<TypeElement>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.CLASS) {
+					tables.add((TypeElement) element);
+				} else if (element.getKind() == ElementKind.FIELD) {
+					tables.add((TypeElement) element.getEnclosingElement());
+				}
+			}
+		}
+		for (TypeElement table : tables) {
+			if (isBindable(table)) {
+				generate(table);
+			}
+		}
+		return false;
+	}
+
+	private boolean isBindable(final TypeElement table) {
+		TypeElement tableType = processingEnv.getElementUtils().getTypeElement(TABLE);
+		if (table.getModifiers().contains(Modifier.ABSTRACT) || tableType == null
+				|| !processingEnv.getTypeUtils().isSubtype(table.asType(), tableType.asType())) {
+			return false;
+		}
+		if (table.getNestingKind() != NestingKind.TOP_LEVEL) {
+			return skip(table, "it's not a top level class");
+		}
+		if (!hasPublicNoArgConstructor(table)) {
+			return skip(table, "it has no public no-arg constructor");
+		}
+		for (VariableElement field : getColumns(table)) {
+			if (field.getModifiers().contains(Modifier.PRIVATE)) {
+				return skip(table, "column " + field.getSimpleName() + " is private");
+			}
+			if (field.getModifiers().contains(Modifier.FINAL)) {
+				return skip(table, "column " + field.getSimpleName() + " is final");
+			}
+			if (field.getModifiers().contains(Modifier.STATIC)) {
+				return skip(table, "column " + field.getSimpleName() + " is static");
+			}
+			if (Codec.of(field.asType()) == null) {
+				return skip(table, "column " + field.getSimpleName() + " has unsupported type " + field.asType());
+			}
+		}
+		return true;
+	}
+
+	private boolean skip(final TypeElement table, final String reason) {
+		processingEnv.getMessager().printMessage(Kind.NOTE,
+			"No " + SUFFIX + " generated for " + table.getQualifiedName() + ", because " + reason, table);
+		return false;
+	}
+
+	private boolean hasPublicNoArgConstructor(final TypeElement table) {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(table.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private List<VariableElement> getColumns(final TypeElement table) {
+		List<VariableElement> columns = new ArrayList<VariableElement>();
+		for (VariableElement field : ElementFilter.fieldsIn(table.getEnclosedElements())) {
+			if (hasColumnAnnotation(field)) {
+				columns.add(field);
+			}
+		}
+		return columns;
+	}
+
+	private boolean hasColumnAnnotation(final Element element) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (mirror.getAnnotationType().toString().equals(COLUMN)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void generate(final TypeElement table) {
+		String packageName = ((PackageElement) table.getEnclosingElement()).getQualifiedName().toString();
+		String tableName = table.getSimpleName().toString();
+		String binderName = tableName + SUFFIX;
+		List<VariableElement> columns = getColumns(table);
+
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(
+				packageName.length() > 0 ? packageName + "." + binderName : binderName, table);
+			PrintWriter out = new PrintWriter(file.openWriter());
+			try {
+				write(out, packageName, tableName, binderName, columns);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+				"Could not write " + binderName + ": " + e.getMessage(), table);
+		}
+	}
+
+	private void write(final PrintWriter out, final String packageName, final String tableName,
+			final String binderName, final List<VariableElement> columns) {
+		out.println("// Generated by " + getClass().getName() + ". Do not modify!");
+		if (packageName.length() > 0) {
+			out.println("package " + packageName + ";");
+			out.println();
+		}
+		out.println("import android.database.Cursor;");
+		out.println("import android.database.sqlite.SQLiteStatement;");
+		out.println("import de.splitstudio.androidb.TableBinder;");
+		out.println();
+		out.println("public final class " + binderName + " implements TableBinder<" + tableName + "> {");
+		out.println();
+		out.print("\tprivate static final String[] COLUMNS = { \"" + PRIMARY_KEY + "\"");
+		for (VariableElement column : columns) {
+			out.print(", \"" + column.getSimpleName() + "\"");
+		}
+		out.println(" };");
+		out.println();
+		out.println("\tpublic String[] getColumnNames() {");
+		out.println("\t\treturn COLUMNS.clone();");
+		out.println("\t}");
+		out.println();
+		out.println("\tpublic " + tableName + " newInstance() {");
+		out.println("\t\treturn new " + tableName + "();");
+		out.println("\t}");
+		out.println();
+
+		out.println("\tpublic void bind(final " + tableName
+				+ " table, final SQLiteStatement statement, final int column, final int index) {");
+		out.println("\t\tswitch (column) {");
+		out.println("\t\tcase 0:");
+		out.println("\t\t\tif (table.getId() == null) {");
+		out.println("\t\t\t\tstatement.bindNull(index);");
+		out.println("\t\t\t} else {");
+		out.println("\t\t\t\tstatement.bindLong(index, table.getId());");
+		out.println("\t\t\t}");
+		out.println("\t\t\tbreak;");
+		int position = 1;
+		for (VariableElement column : columns) {
+			Codec codec = Codec.of(column.asType());
+			String value = "table." + column.getSimpleName();
+			out.println("\t\tcase " + position++ + ":");
+			if (codec.nullable) {
+				out.println("\t\t\tif (" + value + " == null) {");
+				out.println("\t\t\t\tstatement.bindNull(index);");
+				out.println("\t\t\t} else {");
+				out.println("\t\t\t\tstatement." + codec.bindMethod + "(index, " + value + ");");
+				out.println("\t\t\t}");
+			} else {
+				out.println("\t\t\tstatement." + codec.bindMethod + "(index, " + value + ");");
+			}
+			out.println("\t\t\tbreak;");
+		}
+		out.println("\t\tdefault:");
+		out.println("\t\t\tthrow new IllegalArgumentException(\"Unknown column \" + column);");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+
+		out.println("\tpublic void fill(final " + tableName
+				+ " table, final Cursor c, final int column, final int index) {");
+		out.println("\t\tswitch (column) {");
+		out.println("\t\tcase 0:");
+		out.println("\t\t\ttable.setId(c.isNull(index) ? null : Long.valueOf(c.getLong(index)));");
+		out.println("\t\t\tbreak;");
+		position = 1;
+		for (VariableElement column : columns) {
+			Codec codec = Codec.of(column.asType());
+			String value = "table." + column.getSimpleName();
+			out.println("\t\tcase " + position++ + ":");
+			if (codec.nullable) {
+				out.println("\t\t\t" + value + " = c.isNull(index) ? null : " + codec.read + ";");
+			} else {
+				out.println("\t\t\t" + value + " = " + codec.read + ";");
+			}
+			out.println("\t\t\tbreak;");
+		}
+		out.println("\t\tdefault:");
+		out.println("\t\t\tthrow new IllegalArgumentException(\"Unknown column \" + column);");
+		out.println("\t\t}");
+		out.println("\t}");
+		out.println();
+		out.println("}");
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles sample tables with the {@link TableBinderProcessor} against the library on the test classpath.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class TableBinderProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+
+	private File sources;
+
+	@Before
+	public void setUp() {
+		diagnostics = new DiagnosticCollector<JavaFileObject>();
+		sources = new File(folder.getRoot(), "generated");
+		sources.mkdir();
+	}
+
+	@Test
+	public void generatesCompilingBinder() throws IOException {
+		assertTrue(compile("Sample", "@Column public String name; @Column public int count; @Column public Long size;"
+				+ " public static int unmapped;"));
+
+		String binder = readBinder("Sample");
+		assertTrue(binder, binder.contains("{ \"_id\", \"name\", \"count\", \"size\" }"));
+		assertTrue(binder, binder.contains("statement.bindString(index, table.name);"));
+		assertTrue(binder, binder.contains("table.count = c.getInt(index);"));
+		assertTrue(binder, binder.contains("table.size = c.isNull(index) ? null : Long.valueOf(c.getLong(index));"));
+		assertEquals(new ArrayList<String>(), getNotes());
+	}
+
+	@Test
+	public void skipsPrivateColumn() throws IOException {
+		assertSkipped("@Column private String name;", "column name is private");
+	}
+
+	@Test
+	public void skipsFinalColumn() throws IOException {
+		assertSkipped("@Column public String name; @Column public final String kind = \"a\";", "column kind is final");
+	}
+
+	@Test
+	public void skipsStaticColumn() throws IOException {
+		assertSkipped("@Column public static String name;", "column name is static");
+	}
+
+	@Test
+	public void skipsUnsupportedColumn() throws IOException {
+		assertSkipped("@Column public java.util.List<String> names;",
+			"column names has unsupported type java.util.List<java.lang.String>");
+	}
+
+	private void assertSkipped(final String body, final String reason) throws IOException {
+		assertTrue(compile("Sample", body));
+
+		assertFalse(new File(sources, "sample/Sample" + TableBinderProcessor.SUFFIX + ".java").exists());
+		assertEquals(Arrays.asList("No " + TableBinderProcessor.SUFFIX + " generated for sample.Sample, because "
+				+ reason), getNotes());
+	}
+
+	/**
+	 * Compiles the table <code>sample.&lt;name&gt;</code> with the given class body.
+	 *
+	 * @return whether the table and its generated binder compiled without errors.
+	 */
+	private boolean compile(final String name, final String body) throws IOException {
+		final String source = "package sample;\n" + "import de.splitstudio.androidb.Table;\n"
+				+ "import de.splitstudio.androidb.annotation.Column;\n" + "public class " + name
+				+ " extends Table {\n" + body + "\n}\n";
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///sample/" + name + ".java"),
+			JavaFileObject.Kind.SOURCE) {
+
+			@Override
+			public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try {
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(folder.newFolder()));
+			fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Arrays.asList(sources));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+				Arrays.asList("-classpath", System.getProperty("java.class.path")), null, Arrays.asList(file));
+			task.setProcessors(Arrays.asList(new TableBinderProcessor()));
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private String readBinder(final String name) throws IOException {
+		File binder = new File(sources, "sample/" + name + TableBinderProcessor.SUFFIX + ".java");
+		return new String(Files.readAllBytes(binder.toPath()), Charset.forName("UTF-8"));
+	}
+
+	private List<String> getNotes() {
+		List<String> notes = new ArrayList<String>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.NOTE) {
+				notes.add(diagnostic.getMessage(null));
+			}
+		}
+		return notes;
+	}
+}
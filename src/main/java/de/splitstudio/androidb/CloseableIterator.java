@@ -0,0 +1,36 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} holding a resource like a cursor. It closes itself when it's exhausted, but you have to
+ * {@link #close()} it yourself when you stop iterating earlier.
+ *
+ * @param <T> Type of the iterated elements.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Releases the underlying resource. Calling it more than once has no effect.
+	 */
+	void close();
+
+}
@@ -0,0 +1,202 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.lang.reflect.Field;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.ColumnHelper;
+
+/**
+ * Describes a single {@link Column} of a {@link TableSchema}. All reflective lookups (annotation, accessibility, SQL
+ * type and constraints) are done once, when the descriptor is created.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class ColumnDescriptor {
+
+	private final Field field;
+
+	private final String name;
+
+	private final Class<?> type;
+
+	private final Column column;
+
+	private final SqlType sqlType;
+
+	private final FieldType fieldType;
+
+	private final TypeConverter<Object> converter;
+
+	private final String constraints;
+
+	private final int position;
+
+	ColumnDescriptor(final Field field, final int position) {
+		field.setAccessible(true);
+		this.field = field;
+		this.position = position;
+		this.name = field.getName();
+		this.type = field.getType();
+		this.column = field.getAnnotation(Column.class);
+		this.sqlType = TypeMapper.getSqlType(type);
+		this.fieldType = FieldType.of(type);
+		this.converter = fieldType == FieldType.OTHER ? Converters.get(type) : null;
+		this.constraints = ColumnHelper.getConstraints(field).toString();
+	}
+
+	/**
+	 * @return the column name, which is always the name of the field.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the accessible field behind this column.
+	 */
+	public Field getField() {
+		return field;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public Column getColumn() {
+		return column;
+	}
+
+	public SqlType getSqlType() {
+		return sqlType;
+	}
+
+	/**
+	 * @return the codec to read and bind values of this column.
+	 */
+	public FieldType getFieldType() {
+		return fieldType;
+	}
+
+	/**
+	 * @return the converter of this column's type, <code>null</code> for all types SQLite stores directly.
+	 */
+	public TypeConverter<Object> getConverter() {
+		return converter;
+	}
+
+	/**
+	 * @return all constraints with a leading space. Empty, when no constraints were defined.
+	 * @see ColumnHelper#getConstraints(Field)
+	 */
+	public String getConstraints() {
+		return constraints;
+	}
+
+	/**
+	 * @return the position of this column within {@link TableSchema#getColumns()}.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	public boolean isPrimaryKey() {
+		return column.primaryKey();
+	}
+
+	/**
+	 * @return <code>true</code>, when this column is loaded on demand only. The primary key is never lazy.
+	 */
+	public boolean isLazy() {
+		return column.lazy() && !column.primaryKey();
+	}
+
+	/**
+	 * Reads the value of this column from the given table.
+	 *
+	 * @param table the object to read from.
+	 * @return the (boxed) field value.
+	 */
+	public Object get(final Table table) {
+		try {
+			return field.get(table);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the value of this column into the given table.
+	 *
+	 * @param table the object to write to.
+	 * @param value the new value.
+	 */
+	public void set(final Table table, final Object value) {
+		try {
+			field.set(table, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads the value of this column from the cursor into table.
+	 *
+	 * @param table the object to fill.
+	 * @param c the cursor.
+	 * @param index the cursor's column index.
+	 */
+	public void read(final Table table, final Cursor c, final int index) {
+		try {
+			if (converter != null) {
+				field.set(table, c.isNull(index) ? null : converter.fromDb(c, index));
+			} else {
+				fieldType.read(c, index, table, field);
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Binds the value of this column from table to the statement.
+	 *
+	 * @param table the object to read from.
+	 * @param statement the compiled statement.
+	 * @param index the 1-based placeholder index.
+	 */
+	public void bind(final Table table, final SQLiteStatement statement, final int index) {
+		try {
+			if (converter != null) {
+				Object value = field.get(table);
+				TypeMapper.bind(statement, index, value == null ? null : converter.toDb(value));
+			} else {
+				fieldType.bind(statement, index, table, field);
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + sqlType + constraints;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.database.Cursor;
+
+/**
+ * The registry of all {@link TypeConverter}s. Converters for {@link Date} (epoch milliseconds), {@link UUID} (16
+ * bytes) and {@link ByteBuffer} (BLOB) are registered by default. Enums are stored by their name, unless you register
+ * {@link #byOrdinal(Class)} for them:
+ *
+ * <pre>
+ * Converters.register(Color.class, Converters.byOrdinal(Color.class));
+ * </pre>
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public final class Converters {
+
+	/** Stores a {@link Date} as INTEGER with its milliseconds since epoch. */
+	public static final TypeConverter<Date> DATE = new TypeConverter<Date>() {
+		public SqlType getSqlType() {
+			return SqlType.INTEGER;
+		}
+
+		public Object toDb(final Date value) {
+			return value.getTime();
+		}
+
+		public Date fromDb(final Cursor c, final int index) {
+			return new Date(c.getLong(index));
+		}
+	};
+
+	/** Stores a {@link UUID} as 16 byte BLOB. Reads UUIDs stored as text, too. */
+	public static final TypeConverter<UUID> UUID_BYTES = new TypeConverter<UUID>() {
+		public SqlType getSqlType() {
+			return SqlType.BLOB;
+		}
+
+		public Object toDb(final UUID value) {
+			byte[] bytes = new byte[16];
+			putLong(bytes, 0, value.getMostSignificantBits());
+			putLong(bytes, 8, value.getLeastSignificantBits());
+			return bytes;
+		}
+
+		public UUID fromDb(final Cursor c, final int index) {
+			byte[] bytes = c.getBlob(index);
+			if (bytes.length != 16) {
+				return UUID.fromString(c.getString(index));
+			}
+			return new UUID(getLong(bytes, 0), getLong(bytes, 8));
+		}
+	};
+
+	/**
+	 * Stores the remaining bytes of a {@link ByteBuffer} as BLOB. The backing array is bound without copying, when
+	 * the buffer covers all of it.
+	 */
+	public static final TypeConverter<ByteBuffer> BYTE_BUFFER = new TypeConverter<ByteBuffer>() {
+		public SqlType getSqlType() {
+			return SqlType.BLOB;
+		}
+
+		public Object toDb(final ByteBuffer value) {
+			if (value.hasArray() && value.arrayOffset() == 0 && value.position() == 0
+					&& value.remaining() == value.array().length) {
+				return value.array();
+			}
+			byte[] bytes = new byte[value.remaining()];
+			value.duplicate().get(bytes);
+			return bytes;
+		}
+
+		public ByteBuffer fromDb(final Cursor c, final int index) {
+			return ByteBuffer.wrap(c.getBlob(index));
+		}
+	};
+
+	private static final Map<Class<?>, TypeConverter<?>> converters =
+		new ConcurrentHashMap<Class<?>, TypeConverter<?>>();
+	static {
+		register(Date.class, DATE);
+		register(UUID.class, UUID_BYTES);
+		register(ByteBuffer.class, BYTE_BUFFER);
+	}
+
+	private Converters() {
+		//static only.
+	}
+
+	/**
+	 * Registers a converter for a type and its subclasses. It replaces an already registered one, but columns, which
+	 * already resolved their converter, will keep the old one.
+	 *
+	 * @param type the java type.
+	 * @param converter the converter.
+	 */
+	public static <T> void register(final Class<T> type, final TypeConverter<T> converter) {
+		if (type == null || converter == null) {
+			throw new IllegalArgumentException("Type and converter must not be null");
+		}
+		converters.put(type, converter);
+	}
+
+	/**
+	 * Finds the converter of a type. It's the converter registered for the type or its nearest superclass. Enums
+	 * without a registered converter get {@link #byName(Class)}.
+	 *
+	 * @param type the java type.
+	 * @return the converter, <code>null</code> when there is none.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static TypeConverter<Object> get(final Class<?> type) {
+		for (Class<?> klaas = type; klaas != null && klaas != Object.class; klaas = klaas.getSuperclass()) {
+			TypeConverter<?> converter = converters.get(klaas);
+			if (converter != null) {
+				return (TypeConverter<Object>) converter;
+			}
+			if (klaas.isEnum()) {
+				converter = byName((Class<Enum>) klaas);
+				converters.put(klaas, converter);
+				return (TypeConverter<Object>) converter;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return a converter storing enums as TEXT with their {@link Enum#name()}. Renaming a constant breaks it.
+	 */
+	public static <E extends Enum<E>> TypeConverter<E> byName(final Class<E> type) {
+		return new EnumConverter<E>(type, true);
+	}
+
+	/**
+	 * @return a converter storing enums as INTEGER with their {@link Enum#ordinal()}. It's more compact than
+	 *         {@link #byName(Class)}, but reordering the constants breaks it.
+	 */
+	public static <E extends Enum<E>> TypeConverter<E> byOrdinal(final Class<E> type) {
+		return new EnumConverter<E>(type, false);
+	}
+
+	private static void putLong(final byte[] bytes, final int offset, final long value) {
+		for (int i = 0; i < 8; i++) {
+			bytes[offset + i] = (byte) (value >>> (56 - 8 * i));
+		}
+	}
+
+	private static long getLong(final byte[] bytes, final int offset) {
+		long value = 0L;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFFL);
+		}
+		return value;
+	}
+
+	private static final class EnumConverter<E extends Enum<E>> implements TypeConverter<E> {
+
+		private final Class<E> type;
+
+		private final E[] constants;
+
+		private final boolean byName;
+
+		EnumConverter(final Class<E> type, final boolean byName) {
+			this.type = type;
+			this.constants = type.getEnumConstants();
+			this.byName = byName;
+		}
+
+		public SqlType getSqlType() {
+			return byName ? SqlType.TEXT : SqlType.INTEGER;
+		}
+
+		public Object toDb(final E value) {
+			return byName ? (Object) value.name() : (Object) Long.valueOf(value.ordinal());
+		}
+
+		public E fromDb(final Cursor c, final int index) {
+			return byName ? Enum.valueOf(type, c.getString(index)) : constants[c.getInt(index)];
+		}
+	}
+
+}
@@ -0,0 +1,325 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * All connections to one database file. There is exactly one writer connection, which is guarded by a fair lock, so
+ * concurrent writers queue up in order. When the database supports WAL journaling, there is a fixed number of
+ * read-only connections, which are handed out round-robin, so readers don't wait for writers. Without WAL (or for an
+ * in-memory db), all reads go to the writer.<br/>
+ * It also remembers, which tables were already created and checked for upgrades in this database.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class DatabaseContext {
+
+	/** Default number of read-only connections. */
+	public static final int DEFAULT_READERS = 3;
+
+	private static final String TAG = DatabaseContext.class.getSimpleName();
+
+	private final SQLiteDatabase writer;
+
+	private final SQLiteDatabase[] readers;
+
+	private final AtomicInteger nextReader = new AtomicInteger();
+
+	private final ReentrantLock writeLock = new ReentrantLock(true);
+
+	private final StatementCache statements;
+
+	/** The compiled statements of each reader, in the order of {@link #readers}. */
+	private final StatementCache[] readerStatements;
+
+	/** Run by the lock holder, when it releases the lock. Only accessed while holding the lock. */
+	private final List<Runnable> unlockTasks = new ArrayList<Runnable>();
+
+	/** Tables, which were already created. */
+	private final ConcurrentHashMap<String, Boolean> createdTables = new ConcurrentHashMap<String, Boolean>();
+
+	/** Tables, which were already checked for upgrades. */
+	private final ConcurrentHashMap<String, Boolean> checkedTables = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * @param writer the opened, writable database.
+	 * @param readerCount number of additional read-only connections. They will only be opened, when WAL journaling
+	 *            could be enabled. Use 0 for in-memory databases.
+	 */
+	public DatabaseContext(final SQLiteDatabase writer, final int readerCount) {
+		this.writer = writer;
+		this.statements = new StatementCache(writer);
+		enableForeignKeys(writer);
+		if (readerCount > 0 && enableWal(writer)) {
+			this.readers = openReaders(writer.getPath(), readerCount);
+		} else {
+			this.readers = new SQLiteDatabase[0];
+		}
+		this.readerStatements = newStatementCaches(readers);
+	}
+
+	/**
+	 * Uses connections opened by the caller, e.g. taken from a connection pool. They will be closed by
+	 * {@link #close()}.
+	 *
+	 * @param writer the opened, writable database.
+	 * @param readers read-only connections to the same database. They must see the commits of the writer without
+	 *            blocking it, so the database has to be in WAL mode already.
+	 */
+	public DatabaseContext(final SQLiteDatabase writer, final SQLiteDatabase[] readers) {
+		this.writer = writer;
+		this.statements = new StatementCache(writer);
+		enableForeignKeys(writer);
+		this.readers = readers.clone();
+		this.readerStatements = newStatementCaches(this.readers);
+	}
+
+	private static StatementCache[] newStatementCaches(final SQLiteDatabase[] dbs) {
+		StatementCache[] caches = new StatementCache[dbs.length];
+		for (int i = 0; i < dbs.length; i++) {
+			caches[i] = new StatementCache(dbs[i]);
+		}
+		return caches;
+	}
+
+	/**
+	 * Foreign keys have to be enabled per connection. SQLite before 3.6.19 ignores it.
+	 */
+	private static void enableForeignKeys(final SQLiteDatabase db) {
+		try {
+			db.execSQL("PRAGMA foreign_keys = ON");
+		} catch (RuntimeException e) {
+			Log.w(TAG, "Could not enable foreign keys for " + db.getPath(), e);
+		}
+	}
+
+	private static boolean enableWal(final SQLiteDatabase db) {
+		try {
+			Cursor c = db.rawQuery("PRAGMA journal_mode=WAL", null);
+			try {
+				return c.moveToFirst() && "wal".equalsIgnoreCase(c.getString(0));
+			} finally {
+				c.close();
+			}
+		} catch (RuntimeException e) {
+			Log.w(TAG, "Could not enable WAL journaling for " + db.getPath(), e);
+			return false;
+		}
+	}
+
+	private static SQLiteDatabase[] openReaders(final String path, final int count) {
+		SQLiteDatabase[] readers = new SQLiteDatabase[count];
+		try {
+			for (int i = 0; i < count; i++) {
+				readers[i] = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+			}
+			return readers;
+		} catch (RuntimeException e) {
+			Log.w(TAG, "Could not open read-only connections to " + path, e);
+			for (SQLiteDatabase reader : readers) {
+				if (reader != null) {
+					reader.close();
+				}
+			}
+			return new SQLiteDatabase[0];
+		}
+	}
+
+	/**
+	 * @return the writer connection. Hold the {@link #lockWriter() lock} while writing.
+	 */
+	public SQLiteDatabase getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Retrieves a connection for queries. When the current thread is writing (holds the lock or is in a transaction),
+	 * it gets the writer, so it can read its own uncommitted changes.
+	 *
+	 * @return a connection for queries.
+	 */
+	public SQLiteDatabase getReader() {
+		if (readers.length == 0 || writeLock.isHeldByCurrentThread() || writer.inTransaction()) {
+			return writer;
+		}
+		return readers[(nextReader.getAndIncrement() & Integer.MAX_VALUE) % readers.length];
+	}
+
+	/**
+	 * Blocks until the current thread is the only writer. Writers get the lock in the order they asked for it. The
+	 * lock is reentrant, so always call {@link #unlockWriter()} in a finally block.
+	 */
+	public void lockWriter() {
+		writeLock.lock();
+	}
+
+	/**
+	 * Takes the lock only, when no other thread holds it, and doesn't wait in the queue of writers. Call
+	 * {@link #unlockWriter()} in a finally block, when it returned <code>true</code>.
+	 *
+	 * @return <code>true</code>, when the current thread holds the lock now.
+	 */
+	public boolean tryLockWriter() {
+		return writeLock.tryLock();
+	}
+
+	public void unlockWriter() {
+		try {
+			if (writeLock.getHoldCount() == 1) {
+				runUnlockTasks();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void runUnlockTasks() {
+		//a task may lock and unlock again.
+		while (!unlockTasks.isEmpty()) {
+			Runnable[] tasks = unlockTasks.toArray(new Runnable[unlockTasks.size()]);
+			unlockTasks.clear();
+			for (Runnable task : tasks) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					Log.w(TAG, "Unlock task " + task + " failed", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, when the current thread holds the writer lock.
+	 */
+	public boolean isWriterLockedByCurrentThread() {
+		return writeLock.isHeldByCurrentThread();
+	}
+
+	/**
+	 * Runs task, when the current thread releases the writer lock, so after all its transactions have ended.
+	 *
+	 * @param task the task, it should be fast.
+	 * @throws IllegalStateException when the current thread doesn't hold the lock.
+	 */
+	void runOnUnlock(final Runnable task) {
+		if (!writeLock.isHeldByCurrentThread()) {
+			throw new IllegalStateException("The current thread doesn't hold the writer lock");
+		}
+		unlockTasks.add(task);
+	}
+
+	/**
+	 * @return the compiled statements of the writer.
+	 */
+	StatementCache getStatements() {
+		return statements;
+	}
+
+	/**
+	 * @param db the writer or one of the readers, see {@link #getReader()}.
+	 * @return the compiled statements of db.
+	 */
+	StatementCache getStatements(final SQLiteDatabase db) {
+		if (db == writer) {
+			return statements;
+		}
+		for (int i = 0; i < readers.length; i++) {
+			if (readers[i] == db) {
+				return readerStatements[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown connection " + db.getPath());
+	}
+
+	/**
+	 * Closes the compiled statements of all connections, e.g. after a schema change. They will be compiled again on
+	 * demand.
+	 */
+	void closeStatements() {
+		statements.close();
+		for (StatementCache cache : readerStatements) {
+			cache.close();
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, when there are read-only connections besides the writer.
+	 */
+	public boolean hasReaders() {
+		return readers.length > 0;
+	}
+
+	public boolean isOpen() {
+		return writer.isOpen();
+	}
+
+	boolean isCreated(final String tableName) {
+		return createdTables.containsKey(tableName);
+	}
+
+	void setCreated(final String tableName, final boolean created) {
+		if (created) {
+			createdTables.put(tableName, Boolean.TRUE);
+		} else {
+			createdTables.remove(tableName);
+		}
+	}
+
+	boolean isChecked(final String tableName) {
+		return checkedTables.containsKey(tableName);
+	}
+
+	void setChecked(final String tableName, final boolean checked) {
+		if (checked) {
+			checkedTables.put(tableName, Boolean.TRUE);
+		} else {
+			checkedTables.remove(tableName);
+		}
+	}
+
+	/**
+	 * Closes all compiled statements and connections.
+	 */
+	public void close() {
+		writeLock.lock();
+		try {
+			closeStatements();
+			for (SQLiteDatabase reader : readers) {
+				if (reader.isOpen()) {
+					reader.close();
+				}
+			}
+			if (writer.isOpen()) {
+				writer.close();
+			}
+			createdTables.clear();
+			checkedTables.clear();
+			unlockTasks.clear();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+}
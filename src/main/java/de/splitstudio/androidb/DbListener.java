@@ -0,0 +1,67 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+/**
+ * Gets notified after each database operation. Register it with {@link Table#addListener(DbListener)}. As long as no
+ * listener is registered, the operations won't even be timed.<br/>
+ * Listeners are called synchronously on the thread, which executed the operation (sometimes while holding the writer
+ * lock), so keep them fast. Exceptions thrown by a listener will be logged and ignored.
+ *
+ * @see DbMetrics
+ * @see SlowQueryLog
+ * @see QueryPlanAdvisor
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public interface DbListener {
+
+	/** The kinds of operations. */
+	enum Operation {
+		/** {@link Table#insert()}. */
+		INSERT,
+		/** {@link Table#update()}. */
+		UPDATE,
+		/** All deletes. */
+		DELETE,
+		/** {@link Table#find(Long)} without a cache hit. */
+		FIND,
+		/**
+		 * Queries returning lists or cursors, including the {@link #FILL} of the rows of lists. A cursor reports its
+		 * query, when it gets closed.
+		 */
+		QUERY,
+		/** Hydration of rows from a cursor. */
+		FILL,
+		/** Creating, upgrading and dropping tables and indices. */
+		SCHEMA
+	}
+
+	/**
+	 * Called after an operation has finished, even when it failed.
+	 *
+	 * @param operation the kind of operation.
+	 * @param tableName the table.
+	 * @param sql the executed SQL with <code>?</code> placeholders. For {@link Operation#FILL} the query of the
+	 *            cursor, <code>null</code> when an application passed its own cursor to
+	 *            {@link Table#fill(android.database.Cursor)} or {@link Table#fillAll(Class, android.database.Cursor)}.
+	 * @param nanos duration of the operation.
+	 * @param rows number of affected, found or filled rows.
+	 * @param bytes approximate size of all bound values, 0 for reading operations.
+	 */
+	void onOperation(Operation operation, String tableName, String sql, long nanos, int rows, long bytes);
+
+}
@@ -0,0 +1,196 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects statistics per table and {@link DbListener.Operation}: number of operations, rows, bound bytes, total and
+ * maximal duration and a latency histogram with the buckets of {@link #BUCKET_BOUNDS_MICROS}.
+ *
+ * <pre>
+ * DbMetrics metrics = new DbMetrics();
+ * Table.addListener(metrics);
+ * //...
+ * Log.i(TAG, metrics.toString());
+ * </pre>
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class DbMetrics implements DbListener {
+
+	/**
+	 * Upper bounds (exclusive) of the histogram buckets in microseconds. The last bucket holds all slower operations.
+	 */
+	public static final long[] BUCKET_BOUNDS_MICROS = { 100L, 1000L, 10000L, 100000L, 1000000L };
+
+	private final Map<String, Stats> stats = new TreeMap<String, Stats>();
+
+	public void onOperation(final Operation operation, final String tableName, final String sql, final long nanos,
+			final int rows, final long bytes) {
+		String key = tableName + "." + operation;
+		synchronized (stats) {
+			Stats s = stats.get(key);
+			if (s == null) {
+				s = new Stats(tableName, operation);
+				stats.put(key, s);
+			}
+			s.add(nanos, rows, bytes);
+		}
+	}
+
+	/**
+	 * @return a copy of the statistics of an operation on a table, <code>null</code> when there was none yet.
+	 */
+	public Stats getStats(final String tableName, final Operation operation) {
+		synchronized (stats) {
+			Stats s = stats.get(tableName + "." + operation);
+			return s == null ? null : s.copy();
+		}
+	}
+
+	/**
+	 * @return copies of all statistics, ordered by table and operation.
+	 */
+	public List<Stats> getAllStats() {
+		synchronized (stats) {
+			List<Stats> all = new ArrayList<Stats>(stats.size());
+			for (Stats s : stats.values()) {
+				all.add(s.copy());
+			}
+			return all;
+		}
+	}
+
+	public void reset() {
+		synchronized (stats) {
+			stats.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("DbMetrics[");
+		for (Stats s : getAllStats()) {
+			sb.append("\n  ").append(s);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Statistics of one operation on one table.
+	 */
+	public static class Stats {
+
+		private final String tableName;
+
+		private final Operation operation;
+
+		private long count = 0;
+
+		private long rows = 0;
+
+		private long bytes = 0;
+
+		private long totalNanos = 0;
+
+		private long maxNanos = 0;
+
+		private final long[] histogram = new long[BUCKET_BOUNDS_MICROS.length + 1];
+
+		Stats(final String tableName, final Operation operation) {
+			this.tableName = tableName;
+			this.operation = operation;
+		}
+
+		void add(final long nanos, final int rows, final long bytes) {
+			count++;
+			this.rows += rows;
+			this.bytes += bytes;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+			long micros = nanos / 1000L;
+			int bucket = 0;
+			while (bucket < BUCKET_BOUNDS_MICROS.length && micros >= BUCKET_BOUNDS_MICROS[bucket]) {
+				bucket++;
+			}
+			histogram[bucket]++;
+		}
+
+		Stats copy() {
+			Stats copy = new Stats(tableName, operation);
+			copy.count = count;
+			copy.rows = rows;
+			copy.bytes = bytes;
+			copy.totalNanos = totalNanos;
+			copy.maxNanos = maxNanos;
+			System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+			return copy;
+		}
+
+		public String getTableName() {
+			return tableName;
+		}
+
+		public Operation getOperation() {
+			return operation;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getAverageNanos() {
+			return count == 0 ? 0 : totalNanos / count;
+		}
+
+		/**
+		 * @return number of operations per bucket of {@link DbMetrics#BUCKET_BOUNDS_MICROS}.
+		 */
+		public long[] getHistogram() {
+			return histogram.clone();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s.%s: count=%d, rows=%d, bytes=%d, avg=%.3fms, max=%.3fms, histogram=%s",
+				tableName, operation, count, rows, bytes, getAverageNanos() / 1000000d, maxNanos / 1000000d,
+				Arrays.toString(histogram));
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A size-bounded LRU cache for rows loaded by their primary key. It holds the column values, not the objects
+ * themselves. Values of the mutable types <code>byte[]</code>, {@link Date} and {@link ByteBuffer} are copied on
+ * {@link #put(Table, long)} and {@link #fill(Table, long)}, so changing a found object won't change the cache. Values
+ * of other mutable types with a {@link TypeConverter} are shared. Enable it with {@link Table#enableCache(int)}.
+ * {@link Table} invalidates the entries on every write and again, when the writer lock is released after the commit.
+ * <p>
+ * A reader takes the {@link #getGeneration() generation} before it queries a row and passes it to
+ * {@link #put(Table, long)}. When the row's table was invalidated in between, the row might be stale and won't be
+ * cached.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class EntityCache {
+
+	/** Placeholder for the values of columns, which weren't loaded. */
+	private static final Object UNLOADED = new Object();
+
+	private final int maxSize;
+
+	private final Map<Key, Object[]> entries;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	private long evictions = 0;
+
+	/** Counts all invalidations. */
+	private long generation = 0;
+
+	/** The generation of the last {@link #clear()}. */
+	private long cleared = 0;
+
+	/** The generation of the last invalidation of each table. */
+	private final Map<String, Long> invalidated = new HashMap<String, Long>();
+
+	/**
+	 * @param maxSize maximal number of cached rows over all tables.
+	 */
+	public EntityCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size has to be >= 1, but was " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Key, Object[]>(Math.min(maxSize, 1024), 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Object[]> eldest) {
+				if (size() > EntityCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Fills table with the cached values of the row with the given id.
+	 *
+	 * @param table the object to fill.
+	 * @param id the primary key.
+	 * @return <code>true</code> on a cache hit.
+	 */
+	public synchronized boolean fill(final Table table, final long id) {
+		Object[] values = entries.get(new Key(table.getTableName(), id));
+		if (values == null) {
+			misses++;
+			return false;
+		}
+		hits++;
+		List<ColumnDescriptor> columns = table.getSchema().getColumns();
+		boolean[] unloaded = null;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == UNLOADED) {
+				if (unloaded == null) {
+					unloaded = new boolean[values.length];
+				}
+				unloaded[i] = true;
+			} else {
+				columns.get(i).set(table, copy(values[i]));
+			}
+		}
+		table.takeSnapshot();
+		table.setUnloaded(unloaded);
+		return true;
+	}
+
+	/**
+	 * @return the current generation, take it before loading a row for {@link #put(Table, long)}.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Caches a copy of all loaded column values of table, unless its table was invalidated since the row was loaded.
+	 *
+	 * @param table a table with an id.
+	 * @param loaded the {@link #getGeneration() generation} taken before the row was loaded.
+	 * @return <code>false</code>, when the row might be stale and wasn't cached.
+	 */
+	public synchronized boolean put(final Table table, final long loaded) {
+		String tableName = table.getTableName();
+		Long last = invalidated.get(tableName);
+		if (cleared > loaded || last != null && last > loaded) {
+			return false;
+		}
+		List<ColumnDescriptor> columns = table.getSchema().getColumns();
+		Object[] values = new Object[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			ColumnDescriptor column = columns.get(i);
+			values[i] = table.isLoaded(column) ? copy(column.get(table)) : UNLOADED;
+		}
+		entries.put(new Key(tableName, table.getId()), values);
+		return true;
+	}
+
+	/**
+	 * Removes a single row.
+	 */
+	public synchronized void remove(final String tableName, final long id) {
+		invalidated.put(tableName, ++generation);
+		entries.remove(new Key(tableName, id));
+	}
+
+	/**
+	 * Removes all rows of a table.
+	 */
+	public synchronized void removeAll(final String tableName) {
+		invalidated.put(tableName, ++generation);
+		for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext();) {
+			if (it.next().tableName.equals(tableName)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all rows.
+	 */
+	public synchronized void clear() {
+		cleared = ++generation;
+		invalidated.clear();
+		entries.clear();
+	}
+
+	private static Object copy(final Object value) {
+		if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		if (value instanceof Date) {
+			return ((Date) value).clone();
+		}
+		if (value instanceof ByteBuffer) {
+			ByteBuffer buffer = (ByteBuffer) value;
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(bytes);
+			return ByteBuffer.wrap(bytes).order(buffer.order());
+		}
+		return value;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("EntityCache[size=%d/%d, hits=%d, misses=%d, evictions=%d]", entries.size(), maxSize,
+			hits, misses, evictions);
+	}
+
+	private static final class Key {
+
+		private final String tableName;
+
+		private final long id;
+
+		Key(final String tableName, final long id) {
+			this.tableName = tableName;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return id == other.id && tableName.equals(other.tableName);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * tableName.hashCode() + (int) (id ^ (id >>> 32));
+		}
+	}
+
+}
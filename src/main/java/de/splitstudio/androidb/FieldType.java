@@ -0,0 +1,259 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.lang.reflect.Field;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * The codec of a column's java type. It reads a cursor value into a field and binds a field value to a statement.
+ * Primitive fields are accessed through the unboxed {@link Field#setLong(Object, long)} and friends, boxed fields are
+ * <code>null</code>, when the db value is <code>NULL</code>. Resolve it once per column with {@link #of(Class)}.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public enum FieldType {
+
+	LONG {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setLong(target, c.getLong(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindLong(index, field.getLong(source));
+		}
+	},
+
+	INT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setInt(target, c.getInt(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindLong(index, field.getInt(source));
+		}
+	},
+
+	SHORT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setShort(target, c.getShort(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindLong(index, field.getShort(source));
+		}
+	},
+
+	BYTE {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setByte(target, (byte) c.getShort(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindLong(index, field.getByte(source));
+		}
+	},
+
+	CHAR {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setChar(target, (char) c.getShort(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindLong(index, field.getChar(source));
+		}
+	},
+
+	DOUBLE {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setDouble(target, c.getDouble(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindDouble(index, field.getDouble(source));
+		}
+	},
+
+	FLOAT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.setFloat(target, c.getFloat(index));
+		}
+
+		@Override
+		void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+				throws IllegalAccessException {
+			s.bindDouble(index, field.getFloat(source));
+		}
+	},
+
+	BOXED_LONG {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Long.valueOf(c.getLong(index)));
+		}
+	},
+
+	BOXED_INT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Integer.valueOf(c.getInt(index)));
+		}
+	},
+
+	BOXED_SHORT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Short.valueOf(c.getShort(index)));
+		}
+	},
+
+	BOXED_BYTE {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Byte.valueOf((byte) c.getShort(index)));
+		}
+	},
+
+	BOXED_DOUBLE {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Double.valueOf(c.getDouble(index)));
+		}
+	},
+
+	BOXED_FLOAT {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : Float.valueOf(c.getFloat(index)));
+		}
+	},
+
+	STRING {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.getString(index));
+		}
+	},
+
+	BLOB {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, c.isNull(index) ? null : c.getBlob(index));
+		}
+	},
+
+	/**
+	 * Everything else. Columns with a {@link TypeConverter} use it directly, all others read through
+	 * {@link TypeMapper#getTypedValue(Cursor, int, java.lang.reflect.Type)}.
+	 */
+	OTHER {
+		@Override
+		void read(final Cursor c, final int index, final Object target, final Field field)
+				throws IllegalAccessException {
+			field.set(target, TypeMapper.getTypedValue(c, index, field.getType()));
+		}
+	};
+
+	/**
+	 * Reads the value at index from the cursor and sets it into the field of target.
+	 */
+	abstract void read(Cursor c, int index, Object target, Field field) throws IllegalAccessException;
+
+	/**
+	 * Binds the field value of source to the statement at index. The default binds the boxed value through
+	 * {@link TypeMapper#bind(SQLiteStatement, int, Object)}.
+	 */
+	void bind(final SQLiteStatement s, final int index, final Object source, final Field field)
+			throws IllegalAccessException {
+		TypeMapper.bind(s, index, field.get(source));
+	}
+
+	/**
+	 * @param type the java type of a field.
+	 * @return the matching codec, {@link #OTHER} for unknown types.
+	 */
+	public static FieldType of(final Class<?> type) {
+		if (type == long.class) {
+			return LONG;
+		} else if (type == int.class) {
+			return INT;
+		} else if (type == short.class) {
+			return SHORT;
+		} else if (type == byte.class) {
+			return BYTE;
+		} else if (type == char.class) {
+			return CHAR;
+		} else if (type == double.class) {
+			return DOUBLE;
+		} else if (type == float.class) {
+			return FLOAT;
+		} else if (type == Long.class) {
+			return BOXED_LONG;
+		} else if (type == Integer.class) {
+			return BOXED_INT;
+		} else if (type == Short.class) {
+			return BOXED_SHORT;
+		} else if (type == Byte.class) {
+			return BOXED_BYTE;
+		} else if (type == Double.class) {
+			return BOXED_DOUBLE;
+		} else if (type == Float.class) {
+			return BOXED_FLOAT;
+		} else if (type == String.class) {
+			return STRING;
+		} else if (type == byte[].class) {
+			return BLOB;
+		}
+		return OTHER;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.Index;
+
+/**
+ * The definition of one index of a {@link TableSchema}, built from an {@link Index} annotation or from all columns
+ * sharing one of their {@link Column#indexNames()}.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class IndexDescriptor {
+
+	private final String name;
+
+	private final String tableName;
+
+	private final List<String> terms;
+
+	private final boolean unique;
+
+	private final String where;
+
+	/**
+	 * @param name the index name.
+	 * @param tableName the indexed table.
+	 * @param terms the indexed columns or expressions in their order, e.g. <code>"date DESC"</code>.
+	 * @param unique <code>true</code> for a UNIQUE index.
+	 * @param where the condition of a partial index, <code>null</code> for all rows.
+	 */
+	public IndexDescriptor(final String name, final String tableName, final List<String> terms, final boolean unique,
+			final String where) {
+		if (terms.isEmpty()) {
+			throw new IllegalStateException("Index " + name + " of table " + tableName + " has no columns");
+		}
+		this.name = name;
+		this.tableName = tableName;
+		this.terms = Collections.unmodifiableList(terms);
+		this.unique = unique;
+		this.where = where == null || where.trim().length() == 0 ? null : where;
+	}
+
+	IndexDescriptor(final String tableName, final Index index) {
+		this(index.name(), tableName, Arrays.asList(index.columns()), index.unique(), index.where());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the indexed columns or expressions in their order.
+	 */
+	public List<String> getTerms() {
+		return terms;
+	}
+
+	public boolean isUnique() {
+		return unique;
+	}
+
+	/**
+	 * @return the condition of a partial index, <code>null</code> when all rows are indexed.
+	 */
+	public String getWhere() {
+		return where;
+	}
+
+	/**
+	 * @return <code>true</code>, when lookups by column can use this index, because it's the first term and all rows
+	 *         are indexed.
+	 */
+	public boolean startsWith(final String column) {
+		String first = terms.get(0).trim();
+		return where == null && (first.equals(column) || first.startsWith(column + " "));
+	}
+
+	/**
+	 * @return the CREATE INDEX statement.
+	 */
+	public String getCreateSql() {
+		StringBuilder columns = new StringBuilder();
+		for (String term : terms) {
+			if (columns.length() > 0) {
+				columns.append(',');
+			}
+			columns.append(term);
+		}
+		String sql = String.format(unique ? Table.SQL_CREATE_UNIQUE_INDEX : Table.SQL_CREATE_INDEX, name, tableName,
+			columns);
+		return where == null ? sql : sql + " WHERE " + where;
+	}
+
+	@Override
+	public String toString() {
+		return getCreateSql();
+	}
+}
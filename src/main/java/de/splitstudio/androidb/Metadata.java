@@ -15,13 +15,15 @@
  */
 package de.splitstudio.androidb;
 
-import android.database.Cursor;
+import de.splitstudio.androidb.DbListener.Operation;
 import de.splitstudio.androidb.annotation.Column;
 
 class Metadata extends Table {
 
 	private static final long serialVersionUID = 1L;
 
+	private static final String BY_NAME = "tableName = ?";
+
 	@Column(notNull = true)
 	private int tableVersion;
 
@@ -33,9 +35,13 @@ class Metadata extends Table {
 	}
 
 	public boolean findByName(final String name) {
-		String selection = "tableName='" + name + "'";
-		Cursor cursor = getDb().query(getTableName(), getColumnNames(), selection, null, null, null, null);
-		return fillFirstAndClose(cursor);
+		long start = startTimer();
+		String sql = selectSql(getTableName(), getSchema().getEagerColumnNames(), BY_NAME);
+		boolean found = fillFirstAndClose(getReadableDb().rawQuery(sql, new String[] { name }), sql);
+		if (start != 0L) {
+			notifyListeners(Operation.QUERY, getTableName(), sql, start, found ? 1 : 0, 0L);
+		}
+		return found;
 	}
 
 	public void setVersion(final int version) {
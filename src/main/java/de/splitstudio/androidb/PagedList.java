@@ -0,0 +1,293 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.util.Log;
+import de.splitstudio.androidb.DbListener.Operation;
+
+/**
+ * A read-only list over a query, which loads its rows page by page. Pages are fetched with keyset pagination on an
+ * order column (the {@link Table#PRIMARY_KEY} by default), only the last recently used pages are kept in memory and the
+ * neighbours of an accessed page are prefetched in the background. {@link #size()} is a <code>COUNT(*)</code>.<br/>
+ * Use it with {@link TableAdapter} to show very large tables. When the table changes, call {@link #refresh()} and
+ * notify your adapter.
+ *
+ * @param <T> Type of the listed tables.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class PagedList<T extends Table> extends AbstractList<T> {
+
+	/** Default number of rows per page. */
+	public static final int DEFAULT_PAGE_SIZE = 50;
+
+	/** Default number of pages kept in memory. */
+	public static final int DEFAULT_MAX_PAGES = 5;
+
+	private static final String TAG = PagedList.class.getSimpleName();
+
+	/** One background thread for all lists, so we don't compete with the UI for the db. */
+	private static final ExecutorService prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, TAG + "-prefetch");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		}
+	});
+
+	private final Class<T> klaas;
+
+	private final String selection;
+
+	private final String[] selectionArgs;
+
+	private final ColumnDescriptor orderColumn;
+
+	private final int pageSize;
+
+	private final Map<Integer, List<T>> pages;
+
+	/** The order key of the last row of page n-1, which is the start of page n. */
+	private final Map<Integer, Object[]> pageKeys = new HashMap<Integer, Object[]>();
+
+	private final Set<Integer> prefetching = new HashSet<Integer>();
+
+	private int count = -1;
+
+	/** Incremented by {@link #refresh()}, so pages loaded before won't be cached anymore. */
+	private int generation = 0;
+
+	/**
+	 * Lists all rows of klaas, ordered by {@link Table#PRIMARY_KEY}.
+	 *
+	 * @param klaas Class to instantiate T.
+	 */
+	public PagedList(final Class<T> klaas) {
+		this(klaas, null, null, Table.PRIMARY_KEY, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * @param klaas Class to instantiate T.
+	 * @param selection the WHERE clause without "WHERE" and with <code>?</code> placeholders, may be <code>null</code>.
+	 * @param selectionArgs the values for the placeholders.
+	 * @param orderColumn the column to order and paginate by. It should be indexed and NOT NULL. Ties will be ordered
+	 *            by {@link Table#PRIMARY_KEY}.
+	 * @param pageSize number of rows per page.
+	 * @param maxPages number of pages kept in memory.
+	 */
+	public PagedList(final Class<T> klaas, final String selection, final String[] selectionArgs,
+			final String orderColumn, final int pageSize, final int maxPages) {
+		if (pageSize < 1 || maxPages < 1) {
+			throw new IllegalArgumentException("pageSize and maxPages have to be >= 1");
+		}
+		this.klaas = klaas;
+		this.selection = selection;
+		this.selectionArgs = selectionArgs == null ? new String[0] : selectionArgs;
+		this.orderColumn = TableSchema.of(klaas).getColumn(orderColumn);
+		if (this.orderColumn == null) {
+			throw new IllegalArgumentException("Unknown column " + orderColumn + " in " + Table.getTableName(klaas));
+		}
+		this.pageSize = pageSize;
+		this.pages = new LinkedHashMap<Integer, List<T>>(maxPages + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, List<T>> eldest) {
+				return size() > maxPages;
+			}
+		};
+	}
+
+	@Override
+	public synchronized int size() {
+		if (count < 0) {
+			count = countRows();
+		}
+		return count;
+	}
+
+	@Override
+	public T get(final int location) {
+		if (location < 0 || location >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + location + ", Size: " + size());
+		}
+		int page = location / pageSize;
+		List<T> rows = getPage(page);
+		prefetch(page + 1);
+		prefetch(page - 1);
+
+		int index = location % pageSize;
+		//the table changed since the last refresh().
+		return index < rows.size() ? rows.get(index) : null;
+	}
+
+	/**
+	 * Forgets all loaded pages and the row count. Call it, when the underlying table changed.
+	 */
+	public void refresh() {
+		synchronized (this) {
+			count = -1;
+		}
+		synchronized (pages) {
+			generation++;
+			pages.clear();
+			pageKeys.clear();
+		}
+	}
+
+	private List<T> getPage(final int page) {
+		synchronized (pages) {
+			List<T> rows = pages.get(page);
+			if (rows != null) {
+				return rows;
+			}
+		}
+		return loadPage(page);
+	}
+
+	private void prefetch(final int page) {
+		if (page < 0 || page * pageSize >= size()) {
+			return;
+		}
+		synchronized (pages) {
+			if (pages.containsKey(page) || !prefetching.add(page)) {
+				return;
+			}
+		}
+		prefetcher.execute(new Runnable() {
+			public void run() {
+				try {
+					loadPage(page);
+				} catch (RuntimeException e) {
+					Log.w(TAG, "Could not prefetch page " + page + " of " + klaas, e);
+				} finally {
+					synchronized (pages) {
+						prefetching.remove(page);
+					}
+				}
+			}
+		});
+	}
+
+	private List<T> loadPage(final int page) {
+		Object[] key;
+		int loadedGeneration;
+		synchronized (pages) {
+			key = pageKeys.get(page);
+			loadedGeneration = generation;
+		}
+
+		List<String> args = new ArrayList<String>();
+		StringBuilder where = new StringBuilder();
+		if (selection != null) {
+			where.append('(').append(selection).append(')');
+			for (String arg : selectionArgs) {
+				args.add(arg);
+			}
+		}
+		String limit = String.valueOf(pageSize);
+		if (key != null) {
+			appendKeyCondition(where, args, key);
+		} else if (page > 0) {
+			//we jumped over pages, so we don't know where this one starts.
+			limit = (page * pageSize) + "," + pageSize;
+		}
+
+		String tableName = Table.getTableName(klaas);
+		String sql = Table.selectSql(tableName, TableSchema.of(klaas).getEagerColumnNames(),
+			where.length() > 0 ? where.toString() : null) + " ORDER BY " + getOrderBy() + " LIMIT " + limit;
+		long start = Table.startTimer();
+		List<T> rows = null;
+		try {
+			rows = Table.fillAll(klaas, Table.getReadableDb().rawQuery(sql, args.toArray(new String[args.size()])),
+				sql);
+		} finally {
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, tableName, sql, start, rows == null ? 0 : rows.size(), 0L);
+			}
+		}
+
+		synchronized (pages) {
+			if (loadedGeneration != generation) {
+				return rows;
+			}
+			pages.put(page, rows);
+			Object[] nextKey = rows.size() == pageSize ? getKey(rows.get(rows.size() - 1)) : null;
+			if (nextKey != null) {
+				pageKeys.put(page + 1, nextKey);
+			}
+		}
+		return rows;
+	}
+
+	private boolean isOrderedById() {
+		return orderColumn.isPrimaryKey();
+	}
+
+	private String getOrderBy() {
+		if (isOrderedById()) {
+			return orderColumn.getName();
+		}
+		return orderColumn.getName() + ", " + Table.PRIMARY_KEY;
+	}
+
+	private void appendKeyCondition(final StringBuilder where, final List<String> args, final Object[] key) {
+		if (where.length() > 0) {
+			where.append(" AND ");
+		}
+		String name = orderColumn.getName();
+		if (isOrderedById()) {
+			where.append(TypeMapper.inlineBlobs(name + " > ?", key, args));
+		} else {
+			String condition = "(" + name + " > ? OR (" + name + " = ? AND " + Table.PRIMARY_KEY + " > ?))";
+			where.append(TypeMapper.inlineBlobs(condition, new Object[] { key[0], key[0], key[1] }, args));
+		}
+	}
+
+	/**
+	 * @return the order key of row, <code>null</code> when its order column is NULL. The next page is loaded with an
+	 *         offset then.
+	 */
+	private Object[] getKey(final T row) {
+		Object value = orderColumn.get(row);
+		if (value == null) {
+			return null;
+		}
+		return isOrderedById() ? new Object[] { value } : new Object[] { value, row.getId() };
+	}
+
+	private int countRows() {
+		Query<T> query = Query.from(klaas);
+		if (selection != null) {
+			query.where(selection, (Object[]) selectionArgs);
+		}
+		return query.count();
+	}
+
+}
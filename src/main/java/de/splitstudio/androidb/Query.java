@@ -0,0 +1,404 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import de.splitstudio.androidb.DbListener.Operation;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.ManyToOne;
+import de.splitstudio.androidb.annotation.OneToMany;
+
+/**
+ * Builds a SELECT on a single table. All values are passed as bind arguments, so the SQL text only depends on the
+ * shape of the query and SQLite can reuse its compiled statement for all values:
+ *
+ * <pre>
+ * List&lt;Category&gt; cats = Query.from(Category.class).where(&quot;budget &gt; ?&quot;, 42).orderBy(&quot;name&quot;).limit(10).list();
+ * </pre>
+ *
+ * Each call of {@link #where(String, Object...)} is combined with AND. A query can be executed several times.<br/>
+ * Aggregates like {@link #count()}, {@link #exists()} or {@link #sum(String)} run as compiled statements, so they
+ * neither load rows nor allocate a cursor.
+ *
+ * @param <T> Type of the queried tables.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class Query<T extends Table> {
+
+	private final Class<T> klaas;
+
+	private final String tableName;
+
+	private String[] columns;
+
+	private final StringBuilder where = new StringBuilder();
+
+	private final List<String> args = new ArrayList<String>();
+
+	private String orderBy = null;
+
+	private int limit = -1;
+
+	private int offset = -1;
+
+	private final List<String> includes = new ArrayList<String>();
+
+	private Query(final Class<T> klaas) {
+		this.klaas = klaas;
+		this.tableName = Table.getTableName(klaas);
+		this.columns = TableSchema.of(klaas).getEagerColumnNames();
+	}
+
+	/**
+	 * @param klaas Class to instantiate T.
+	 * @return a query over all rows of the table.
+	 */
+	public static <T extends Table> Query<T> from(final Class<T> klaas) {
+		return new Query<T>(klaas);
+	}
+
+	/**
+	 * Selects only the given columns and the primary key. All other fields of the returned rows keep their default
+	 * values, until they get loaded with {@link Table#fetch(String)}. All but the {@link Column#lazy() lazy} columns
+	 * are selected by default.
+	 */
+	public Query<T> columns(final String... columns) {
+		this.columns = TableSchema.of(klaas).projection(columns);
+		return this;
+	}
+
+	/**
+	 * Adds a condition.
+	 *
+	 * @param selection SQL expression with <code>?</code> placeholders, e.g. <code>"budget > ? AND name = ?"</code>.
+	 * @param args the values for the placeholders.
+	 */
+	public Query<T> where(final String selection, final Object... args) {
+		if (where.length() > 0) {
+			where.append(" AND ");
+		}
+		where.append('(').append(TypeMapper.inlineBlobs(selection, args, this.args)).append(')');
+		return this;
+	}
+
+	/**
+	 * Adds the condition <code>column = ?</code> or <code>column IS NULL</code>, when value is <code>null</code>.
+	 */
+	public Query<T> whereEquals(final String column, final Object value) {
+		if (value == null) {
+			return where(column + " IS NULL");
+		}
+		return where(column + " = ?", value);
+	}
+
+	/**
+	 * Loads the related rows of the given {@link Relation}s for all rows returned by {@link #list()} and
+	 * {@link #first()}, with one additional query per relation instead of one per row. {@link #stream()} ignores it.
+	 *
+	 * @param relations the names of {@link ManyToOne} or {@link OneToMany} fields.
+	 */
+	public Query<T> include(final String... relations) {
+		TableSchema schema = TableSchema.of(klaas);
+		for (String name : relations) {
+			if (schema.getRelation(name) == null) {
+				throw new IllegalArgumentException("Table " + tableName + " has no relation " + name);
+			}
+			includes.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * @param orderBy the ORDER BY clause without "ORDER BY", e.g. <code>"name, _id DESC"</code>.
+	 */
+	public Query<T> orderBy(final String orderBy) {
+		this.orderBy = orderBy;
+		return this;
+	}
+
+	/**
+	 * @param limit maximal number of rows, -1 for all.
+	 */
+	public Query<T> limit(final int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * @param offset number of rows to skip, -1 for none.
+	 */
+	public Query<T> offset(final int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * @return the SELECT with <code>?</code> placeholders for all values.
+	 */
+	public String toSql() {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(" FROM ").append(tableName);
+		appendWhere(sql);
+		appendTail(sql);
+		return sql.toString();
+	}
+
+	private void appendTail(final StringBuilder sql) {
+		if (orderBy != null) {
+			sql.append(" ORDER BY ").append(orderBy);
+		}
+		if (limit >= 0 || offset >= 0) {
+			sql.append(" LIMIT ?");
+			if (offset >= 0) {
+				sql.append(" OFFSET ?");
+			}
+		}
+	}
+
+	/**
+	 * @return the values for the placeholders of {@link #toSql()}.
+	 */
+	public String[] getArgs() {
+		List<String> all = new ArrayList<String>(args);
+		if (limit >= 0 || offset >= 0) {
+			all.add(String.valueOf(limit));
+			if (offset >= 0) {
+				all.add(String.valueOf(offset));
+			}
+		}
+		return all.toArray(new String[all.size()]);
+	}
+
+	/**
+	 * Executes the query. Don't forget to close the cursor.
+	 */
+	public Cursor cursor() {
+		return Table.rawQuery(tableName, toSql(), getArgs());
+	}
+
+	/**
+	 * @return all matching rows.
+	 */
+	public List<T> list() {
+		long start = Table.startTimer();
+		String sql = toSql();
+		List<T> rows = null;
+		try {
+			rows = Table.fillAll(klaas, Table.getReadableDb().rawQuery(sql, getArgs()), sql);
+		} finally {
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, tableName, sql, start, rows == null ? 0 : rows.size(), 0L);
+			}
+		}
+		return Table.include(rows, includes.toArray(new String[includes.size()]));
+	}
+
+	/**
+	 * @return the first matching row or <code>null</code>.
+	 */
+	public T first() {
+		int oldLimit = limit;
+		limit = 1;
+		try {
+			List<T> rows = list();
+			return rows.isEmpty() ? null : rows.get(0);
+		} finally {
+			limit = oldLimit;
+		}
+	}
+
+	/**
+	 * @return all matching rows as lazy iterator, see {@link Table#stream(Class, String, String[])}.
+	 */
+	public TableIterator<T> stream() {
+		return stream(false);
+	}
+
+	/**
+	 * See {@link Table#stream(Class, String, String[], boolean)}.
+	 */
+	public TableIterator<T> stream(final boolean reuseInstance) {
+		return new TableIterator<T>(klaas, cursor(), reuseInstance);
+	}
+
+	/**
+	 * @return the number of matching rows. {@link #columns}, {@link #orderBy}, {@link #limit} and {@link #offset}
+	 *         will be ignored, like for all other aggregates.
+	 */
+	public int count() {
+		return (int) queryForLong(aggregateSql("COUNT(*)"));
+	}
+
+	/**
+	 * @return <code>true</code>, when at least one row matches. SQLite stops at the first match.
+	 */
+	public boolean exists() {
+		return queryForLong("SELECT EXISTS(" + aggregateSql("1") + ")") != 0L;
+	}
+
+	/**
+	 * @param column a numeric column or expression.
+	 * @return the sum of all non-NULL values, 0 when there are none. Integer sums are exact up to 2^53.
+	 */
+	public double sum(final String column) {
+		return Double.parseDouble(queryForString(aggregateSql("TOTAL(" + column + ")")));
+	}
+
+	/**
+	 * @param column a numeric column or expression.
+	 * @return the average of all non-NULL values, <code>null</code> when there are none.
+	 */
+	public Double avg(final String column) {
+		return queryForDouble(aggregateSql("AVG(" + column + ")"));
+	}
+
+	/**
+	 * @param column a numeric column or expression.
+	 * @return the smallest non-NULL value, <code>null</code> when there is none.
+	 */
+	public Double min(final String column) {
+		return queryForDouble(aggregateSql("MIN(" + column + ")"));
+	}
+
+	/**
+	 * @param column a numeric column or expression.
+	 * @return the largest non-NULL value, <code>null</code> when there is none.
+	 */
+	public Double max(final String column) {
+		return queryForDouble(aggregateSql("MAX(" + column + ")"));
+	}
+
+	/**
+	 * Aggregates the matching rows per value of column. Unlike the other aggregates, it respects {@link #orderBy},
+	 * {@link #limit} and {@link #offset}, so you can select the top groups, e.g. with <code>orderBy("2 DESC")</code>.
+	 *
+	 * <pre>
+	 * Map&lt;String, Double&gt; budgets = Query.from(Category.class).groupBy(&quot;type&quot;, &quot;SUM(budget)&quot;);
+	 * </pre>
+	 *
+	 * @param column the column to group by.
+	 * @param aggregate the aggregate expression, e.g. <code>"COUNT(*)"</code> or <code>"SUM(budget)"</code>.
+	 * @return the text value of column (<code>null</code> for the NULL group) mapped to the aggregate in result
+	 *         order.
+	 */
+	public Map<String, Double> groupBy(final String column, final String aggregate) {
+		Table.ensureSchema(klaas);
+		long start = Table.startTimer();
+		StringBuilder sql = new StringBuilder("SELECT ").append(column).append(", ").append(aggregate);
+		sql.append(" FROM ").append(tableName);
+		appendWhere(sql);
+		sql.append(" GROUP BY ").append(column);
+		appendTail(sql);
+		Map<String, Double> groups = new LinkedHashMap<String, Double>();
+		Cursor c = Table.getReadableDb().rawQuery(sql.toString(), getArgs());
+		try {
+			while (c.moveToNext()) {
+				groups.put(c.isNull(0) ? null : c.getString(0), c.isNull(1) ? null : Double.valueOf(c.getDouble(1)));
+			}
+			return groups;
+		} finally {
+			c.close();
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, tableName, sql.toString(), start, groups.size(), 0L);
+			}
+		}
+	}
+
+	private Double queryForDouble(final String sql) {
+		String value = queryForString(sql);
+		return value == null ? null : Double.valueOf(value);
+	}
+
+	private long queryForLong(final String sql) {
+		return (Long) queryForValue(sql, true);
+	}
+
+	private String queryForString(final String sql) {
+		return (String) queryForValue(sql, false);
+	}
+
+	/**
+	 * Executes an aggregate with the cached statement of a reader. On the writer, it waits for the lock like writes do,
+	 * so no other thread can evict the statement.
+	 *
+	 * @param sql the aggregate.
+	 * @param asLong <code>true</code> for a {@link Long}, <code>false</code> for a {@link String}.
+	 * @return the single value.
+	 */
+	private Object queryForValue(final String sql, final boolean asLong) {
+		Table.ensureSchema(klaas);
+		DatabaseContext context = Table.getDbContext();
+		SQLiteDatabase db = context.getReader();
+		boolean onWriter = db == context.getWriter();
+		StatementCache statements = context.getStatements(db);
+		long start = Table.startTimer();
+		if (onWriter) {
+			context.lockWriter();
+		}
+		try {
+			synchronized (statements) {
+				SQLiteStatement statement = statements.get(sql);
+				for (int i = 0; i < args.size(); i++) {
+					statement.bindString(i + 1, args.get(i));
+				}
+				return asLong ? (Object) statement.simpleQueryForLong() : statement.simpleQueryForString();
+			}
+		} finally {
+			if (onWriter) {
+				context.unlockWriter();
+			}
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, tableName, sql, start, 1, 0L);
+			}
+		}
+	}
+
+	/**
+	 * @param expression the aggregate expression.
+	 * @return the SELECT of expression over all matching rows.
+	 */
+	private String aggregateSql(final String expression) {
+		StringBuilder sql = new StringBuilder("SELECT ").append(expression).append(" FROM ").append(tableName);
+		appendWhere(sql);
+		return sql.toString();
+	}
+
+	private void appendWhere(final StringBuilder sql) {
+		if (where.length() > 0) {
+			sql.append(" WHERE ").append(where);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toSql() + " " + Arrays.asList(getArgs());
+	}
+}
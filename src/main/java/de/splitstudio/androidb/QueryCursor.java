@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import de.splitstudio.androidb.DbListener.Operation;
+
+/**
+ * A cursor, which reports its query to the {@link DbListener}s, when it gets closed. Rows are fetched while moving,
+ * so it reports the time spent in the query and in all moves, and the number of rows moved over. Counting the rows up
+ * front would run the whole query before the first row is read.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+class QueryCursor extends CursorWrapper {
+
+	private final String tableName;
+
+	private final String sql;
+
+	private long nanos;
+
+	private int rows = 0;
+
+	private boolean reported = false;
+
+	/**
+	 * @param cursor the cursor of the query.
+	 * @param tableName the table for the listeners.
+	 * @param sql the query with <code>?</code> placeholders.
+	 * @param nanos the time spent in the query so far.
+	 */
+	QueryCursor(final Cursor cursor, final String tableName, final String sql, final long nanos) {
+		super(cursor);
+		this.tableName = tableName;
+		this.sql = sql;
+		this.nanos = nanos;
+	}
+
+	@Override
+	public boolean move(final int offset) {
+		long start = System.nanoTime();
+		return moved(super.move(offset), start);
+	}
+
+	@Override
+	public boolean moveToPosition(final int position) {
+		long start = System.nanoTime();
+		return moved(super.moveToPosition(position), start);
+	}
+
+	@Override
+	public boolean moveToFirst() {
+		long start = System.nanoTime();
+		return moved(super.moveToFirst(), start);
+	}
+
+	@Override
+	public boolean moveToLast() {
+		long start = System.nanoTime();
+		return moved(super.moveToLast(), start);
+	}
+
+	@Override
+	public boolean moveToNext() {
+		long start = System.nanoTime();
+		return moved(super.moveToNext(), start);
+	}
+
+	@Override
+	public boolean moveToPrevious() {
+		long start = System.nanoTime();
+		return moved(super.moveToPrevious(), start);
+	}
+
+	private boolean moved(final boolean moved, final long start) {
+		nanos += System.nanoTime() - start;
+		if (moved) {
+			rows = Math.max(rows, getPosition() + 1);
+		}
+		return moved;
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		if (!reported) {
+			reported = true;
+			Table.notifyListeners(Operation.QUERY, tableName, sql, nanos, rows);
+		}
+	}
+}
@@ -0,0 +1,612 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import de.splitstudio.androidb.annotation.Column;
+
+/**
+ * Diagnostics for development: runs each distinct statement once through <code>EXPLAIN QUERY PLAN</code> and
+ * collects statistics per statement. Full table scans of tables with at least {@link #getLargeTableRows()} rows get
+ * logged together with a suggestion for {@link Column#indexNames()}, guessed from the columns compared in the WHERE
+ * clause.
+ *
+ * <pre>
+ * QueryPlanAdvisor advisor = new QueryPlanAdvisor();
+ * advisor.setAutoAnalyze(true);
+ * Table.addListener(advisor);
+ * //...
+ * Log.i(TAG, advisor.toString());
+ * </pre>
+ *
+ * With {@link #setAutoAnalyze(boolean)}, it runs <code>ANALYZE</code> for a queried table, when its statistics are
+ * missing while it's large, or when more than {@link #STALE_FRACTION} of its rows were written since. The query
+ * planner uses these statistics to choose between indices. Explaining costs a query per new statement, so don't
+ * register it in production.
+ * <p>
+ * The listeners get the SQL without its arguments, so each statement is explained with <code>0</code> bound to all
+ * placeholders. Plans, which depend on the values, may differ from the real ones: a <code>LIKE ?</code> can use an
+ * index only for a pattern with a constant prefix, and with <code>sqlite_stat4</code> the planner estimates ranges
+ * from the actual bounds.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class QueryPlanAdvisor implements DbListener {
+
+	/** Default for {@link #getLargeTableRows()}. */
+	public static final int DEFAULT_LARGE_TABLE_ROWS = 1000;
+
+	/** Fraction of rows, which may be written after the last ANALYZE, before the statistics are stale. */
+	public static final double STALE_FRACTION = 0.1d;
+
+	private static final String TAG = QueryPlanAdvisor.class.getSimpleName();
+
+	/** Matches the end of a WHERE clause. */
+	private static final Pattern END_OF_WHERE = Pattern.compile("(?i)\\s(GROUP BY|ORDER BY|LIMIT)\\s");
+
+	private final int largeTableRows;
+
+	private volatile boolean autoAnalyze = false;
+
+	/** Statements mapped to their plans. Guarded by itself. */
+	private final Map<String, Plan> plans = new LinkedHashMap<String, Plan>();
+
+	/** Table names mapped to their statistics. Guarded by {@link #plans}. */
+	private final Map<String, TableStats> tables = new HashMap<String, TableStats>();
+
+	public QueryPlanAdvisor() {
+		this(DEFAULT_LARGE_TABLE_ROWS);
+	}
+
+	/**
+	 * @param largeTableRows tables with at least this many rows shouldn't be scanned.
+	 */
+	public QueryPlanAdvisor(final int largeTableRows) {
+		if (largeTableRows < 0) {
+			throw new IllegalArgumentException("largeTableRows has to be >= 0, but was " + largeTableRows);
+		}
+		this.largeTableRows = largeTableRows;
+	}
+
+	public int getLargeTableRows() {
+		return largeTableRows;
+	}
+
+	public boolean isAutoAnalyze() {
+		return autoAnalyze;
+	}
+
+	/**
+	 * @param autoAnalyze <code>true</code> to run <code>ANALYZE</code> for queried tables with stale statistics. It
+	 *            runs on the querying thread, but never within a transaction. It doesn't wait for other writers either,
+	 *            but tries again on the next query.
+	 */
+	public void setAutoAnalyze(final boolean autoAnalyze) {
+		this.autoAnalyze = autoAnalyze;
+	}
+
+	public void onOperation(final Operation operation, final String tableName, final String sql, final long nanos,
+			final int rows, final long bytes) {
+		switch (operation) {
+		case INSERT:
+			written(tableName, rows, rows);
+			return;
+		case DELETE:
+			written(tableName, rows, -rows);
+			explain(tableName, sql, nanos, rows);
+			return;
+		case UPDATE:
+			written(tableName, rows, 0);
+			explain(tableName, sql, nanos, rows);
+			return;
+		case FIND:
+		case QUERY:
+			explain(tableName, sql, nanos, rows);
+			if (autoAnalyze) {
+				analyzeIfStale(tableName);
+			}
+			return;
+		default:
+			return;
+		}
+	}
+
+	private void explain(final String tableName, final String sql, final long nanos, final int rows) {
+		if (sql == null) {
+			return;
+		}
+		Plan plan;
+		synchronized (plans) {
+			plan = plans.get(sql);
+		}
+		if (plan == null || plan.outdated) {
+			Plan explained = newPlan(tableName, sql);
+			synchronized (plans) {
+				Plan old = plans.get(sql);
+				if (old == null || old.outdated) {
+					if (old != null) {
+						explained.count = old.count;
+						explained.rows = old.rows;
+						explained.totalNanos = old.totalNanos;
+					}
+					plans.put(sql, explained);
+					if (explained.isFlagged() && (old == null || !old.isFlagged())) {
+						String suggestion = explained.getSuggestion();
+						Log.w(TAG, "Full scan of " + tableName + " with " + explained.tableRows + " rows: " + sql
+								+ (suggestion == null ? "" : ", suggestion: " + suggestion));
+					}
+				}
+				plan = plans.get(sql);
+			}
+		}
+		synchronized (plans) {
+			plan.add(nanos, rows);
+		}
+	}
+
+	private Plan newPlan(final String tableName, final String sql) {
+		StringBuilder detail = new StringBuilder();
+		String[] args = new String[countPlaceholders(sql)];
+		//the real values are unknown, see the class comment for plans depending on them.
+		Arrays.fill(args, "0");
+		Cursor c = Table.getReadableDb().rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+		try {
+			int column = c.getColumnIndex("detail");
+			while (c.moveToNext()) {
+				if (detail.length() > 0) {
+					detail.append('\n');
+				}
+				detail.append(c.getString(column));
+			}
+		} finally {
+			c.close();
+		}
+		Plan plan = new Plan(tableName, sql, detail.toString());
+		if (plan.isFullScan()) {
+			plan.tableRows = getTableStats(tableName).rows;
+			if (plan.isFlagged()) {
+				plan.suggestedColumns = suggestColumns(tableName, sql);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @return the number of <code>?</code> outside of string literals and quoted names.
+	 */
+	static int countPlaceholders(final String sql) {
+		int count = 0;
+		char quote = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			} else if (c == '[') {
+				quote = ']';
+			} else if (c == '?') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Guesses the columns of an index for the WHERE clause of sql: first the ones compared for equality, then the
+	 * first one compared by range.
+	 *
+	 * @return the suggested columns, empty when the WHERE clause compares no column.
+	 */
+	private List<String> suggestColumns(final String tableName, final String sql) {
+		List<String> columns = new ArrayList<String>();
+		int where = sql.toUpperCase(Locale.US).indexOf(" WHERE ");
+		if (where < 0) {
+			return columns;
+		}
+		String clause = END_OF_WHERE.split(sql.substring(where + 7), 2)[0];
+		String range = null;
+		for (String column : getTableStats(tableName).columns) {
+			if (Table.PRIMARY_KEY.equals(column)) {
+				continue;
+			}
+			String name = "(?i).*(^|[^\\w.]|" + Pattern.quote(tableName) + "\\.)" + Pattern.quote(column) + "\\s*";
+			if (Pattern.compile(name + "(==?|IS\\s|IN\\s*\\().*", Pattern.DOTALL).matcher(clause).matches()) {
+				columns.add(column);
+			} else if (range == null
+					&& Pattern.compile(name + "(<|>|BETWEEN\\s|LIKE\\s|GLOB\\s).*", Pattern.DOTALL).matcher(clause)
+						.matches()) {
+				range = column;
+			}
+		}
+		if (range != null) {
+			columns.add(range);
+		}
+		return columns;
+	}
+
+	private void written(final String tableName, final int changes, final int rows) {
+		synchronized (plans) {
+			TableStats stats = tables.get(tableName);
+			if (stats != null) {
+				stats.changes += changes;
+				stats.rows = Math.max(stats.rows + rows, 0L);
+			}
+		}
+	}
+
+	/**
+	 * @return the statistics of the table, read on first access.
+	 */
+	private TableStats getTableStats(final String tableName) {
+		synchronized (plans) {
+			TableStats stats = tables.get(tableName);
+			if (stats != null) {
+				return stats;
+			}
+		}
+		SQLiteDatabase db = Table.getReadableDb();
+		TableStats stats = new TableStats();
+		stats.rows = queryForLong(db, "SELECT COUNT(*) FROM " + tableName);
+		if (queryForLong(db, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'") > 0L) {
+			//the first number of each entry is the row count.
+			Cursor c = db.rawQuery("SELECT stat FROM sqlite_stat1 WHERE tbl = ? LIMIT 1", new String[] { tableName });
+			try {
+				if (c.moveToFirst() && c.getString(0) != null) {
+					stats.analyzedRows = Long.parseLong(c.getString(0).split(" ")[0]);
+				}
+			} catch (NumberFormatException e) {
+				Log.w(TAG, "Unexpected statistics of " + tableName, e);
+			} finally {
+				c.close();
+			}
+		}
+		Cursor c = db.rawQuery("PRAGMA table_info(" + tableName + ")", null);
+		try {
+			int name = c.getColumnIndex("name");
+			while (c.moveToNext()) {
+				stats.columns.add(c.getString(name));
+			}
+		} finally {
+			c.close();
+		}
+		synchronized (plans) {
+			if (!tables.containsKey(tableName)) {
+				tables.put(tableName, stats);
+			}
+			return tables.get(tableName);
+		}
+	}
+
+	private static long queryForLong(final SQLiteDatabase db, final String sql) {
+		SQLiteStatement statement = db.compileStatement(sql);
+		try {
+			return statement.simpleQueryForLong();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, when the statistics of the table are missing while it has at least
+	 *         {@link #getLargeTableRows()} rows, or when more than {@link #STALE_FRACTION} of its rows were written
+	 *         since the last <code>ANALYZE</code>.
+	 */
+	public boolean isStale(final String tableName) {
+		TableStats stats = getTableStats(tableName);
+		synchronized (plans) {
+			if (stats.analyzedRows < 0L) {
+				return stats.rows >= largeTableRows;
+			}
+			return stats.changes > Math.max(stats.analyzedRows, largeTableRows) * STALE_FRACTION;
+		}
+	}
+
+	/**
+	 * Runs <code>ANALYZE</code> for the table, when its statistics are {@link #isStale(String) stale}. It's skipped
+	 * within a transaction and while another thread holds the writer lock, so queries never wait for writers.
+	 *
+	 * @return <code>true</code>, when it was analyzed.
+	 */
+	public boolean analyzeIfStale(final String tableName) {
+		if (!isStale(tableName)) {
+			return false;
+		}
+		DatabaseContext context = Table.getDbContext();
+		if (!context.tryLockWriter()) {
+			return false;
+		}
+		try {
+			//another thread might have analyzed it meanwhile.
+			if (context.getWriter().inTransaction() || !isStale(tableName)) {
+				return false;
+			}
+			analyze(tableName);
+			return true;
+		} finally {
+			context.unlockWriter();
+		}
+	}
+
+	/**
+	 * Runs <code>ANALYZE</code> for the table and explains its statements again on their next execution, as their
+	 * plans might change. Their statistics are kept.
+	 */
+	public void analyze(final String tableName) {
+		DatabaseContext context = Table.getDbContext();
+		String sql = "ANALYZE " + tableName;
+		long start = Table.startTimer();
+		context.lockWriter();
+		try {
+			context.getWriter().execSQL(sql);
+		} finally {
+			context.unlockWriter();
+			if (start != 0L) {
+				Table.notifyListeners(Operation.SCHEMA, tableName, sql, start, 0, 0L);
+			}
+		}
+		synchronized (plans) {
+			TableStats stats = tables.get(tableName);
+			if (stats != null) {
+				stats.analyzedRows = stats.rows;
+				stats.changes = 0L;
+			}
+			for (Plan plan : plans.values()) {
+				if (plan.tableName.equals(tableName)) {
+					plan.outdated = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return copies of all plans, the ones with the highest total duration first.
+	 */
+	public List<Plan> getPlans() {
+		List<Plan> all = new ArrayList<Plan>();
+		synchronized (plans) {
+			for (Plan plan : plans.values()) {
+				all.add(plan.copy());
+			}
+		}
+		Collections.sort(all, new Comparator<Plan>() {
+
+			public int compare(final Plan a, final Plan b) {
+				return a.totalNanos > b.totalNanos ? -1 : (a.totalNanos == b.totalNanos ? 0 : 1);
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * @return copies of the plans, which scan a large table, see {@link Plan#isFlagged()}.
+	 */
+	public List<Plan> getFlaggedPlans() {
+		List<Plan> flagged = new ArrayList<Plan>();
+		for (Plan plan : getPlans()) {
+			if (plan.isFlagged()) {
+				flagged.add(plan);
+			}
+		}
+		return flagged;
+	}
+
+	/**
+	 * @return a suggestion per table and column set for all {@link #getFlaggedPlans() flagged plans}, e.g.
+	 *         <code>Category: @Column(indexNames = "idx_Category_type_budget") on type, budget</code>.
+	 */
+	public List<String> getSuggestions() {
+		List<String> suggestions = new ArrayList<String>();
+		for (Plan plan : getFlaggedPlans()) {
+			String suggestion = plan.getSuggestion();
+			if (suggestion != null && !suggestions.contains(suggestion)) {
+				suggestions.add(suggestion);
+			}
+		}
+		return suggestions;
+	}
+
+	public void reset() {
+		synchronized (plans) {
+			plans.clear();
+			tables.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("QueryPlanAdvisor[");
+		for (Plan plan : getPlans()) {
+			sb.append("\n  ").append(plan);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Row count and statistics of a table.
+	 */
+	private static class TableStats {
+
+		private long rows;
+
+		/** Rows at the last ANALYZE, -1 when there are no statistics. */
+		private long analyzedRows = -1L;
+
+		/** Written rows since the last ANALYZE. */
+		private long changes = 0L;
+
+		private final List<String> columns = new ArrayList<String>();
+	}
+
+	/**
+	 * The query plan of one statement and the statistics of its executions.
+	 */
+	public class Plan {
+
+		private final String tableName;
+
+		private final String sql;
+
+		private final String detail;
+
+		private long tableRows = -1L;
+
+		private List<String> suggestedColumns = Collections.emptyList();
+
+		private long count = 0;
+
+		private long rows = 0;
+
+		private long totalNanos = 0;
+
+		/** Set by {@link QueryPlanAdvisor#analyze(String)}. */
+		private boolean outdated = false;
+
+		Plan(final String tableName, final String sql, final String detail) {
+			this.tableName = tableName;
+			this.sql = sql;
+			this.detail = detail;
+		}
+
+		void add(final long nanos, final int rows) {
+			count++;
+			this.rows += rows;
+			totalNanos += nanos;
+		}
+
+		Plan copy() {
+			Plan copy = new Plan(tableName, sql, detail);
+			copy.tableRows = tableRows;
+			copy.suggestedColumns = suggestedColumns;
+			copy.count = count;
+			copy.rows = rows;
+			copy.totalNanos = totalNanos;
+			return copy;
+		}
+
+		public String getTableName() {
+			return tableName;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		/**
+		 * @return the details of <code>EXPLAIN QUERY PLAN</code>, one line per step.
+		 */
+		public String getDetail() {
+			return detail;
+		}
+
+		/**
+		 * @return <code>true</code>, when a table is read completely instead of searching it by an index.
+		 */
+		public boolean isFullScan() {
+			for (String line : detail.split("\n")) {
+				if (line.startsWith("SCAN ") && !line.contains(" INDEX")) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return <code>true</code>, when the result gets sorted in a temporary B-tree instead of read in index order.
+		 */
+		public boolean isTempSort() {
+			return detail.contains("USE TEMP B-TREE");
+		}
+
+		/**
+		 * @return <code>true</code>, when it's a {@link #isFullScan() full scan} of a table with at least
+		 *         {@link QueryPlanAdvisor#getLargeTableRows()} rows.
+		 */
+		public boolean isFlagged() {
+			return tableRows >= largeTableRows && isFullScan();
+		}
+
+		/**
+		 * @return the rows of the table, when the plan was explained. -1, when it wasn't counted for an index lookup.
+		 */
+		public long getTableRows() {
+			return tableRows;
+		}
+
+		/**
+		 * @return the columns of an index, which might avoid the scan, empty when there is no guess.
+		 */
+		public List<String> getSuggestedColumns() {
+			return suggestedColumns;
+		}
+
+		/**
+		 * @return the suggested {@link Column#indexNames()} or <code>null</code>, when there is no guess.
+		 */
+		public String getSuggestion() {
+			if (suggestedColumns.isEmpty()) {
+				return null;
+			}
+			StringBuilder name = new StringBuilder("idx_").append(tableName);
+			StringBuilder columns = new StringBuilder();
+			for (String column : suggestedColumns) {
+				name.append('_').append(column);
+				if (columns.length() > 0) {
+					columns.append(", ");
+				}
+				columns.append(column);
+			}
+			return tableName + ": @Column(indexNames = \"" + name + "\") on " + columns;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		@Override
+		public String toString() {
+			String suggestion = getSuggestion();
+			return String.format("%s%s: count=%d, rows=%d, total=%.3fms, plan=%s%s", isFlagged() ? "SCAN of "
+					+ tableRows + " rows, " : "", sql, count, rows, totalNanos / 1000000d, detail.replace('\n', ';'),
+				suggestion == null ? "" : ", suggestion=" + suggestion);
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.splitstudio.androidb.annotation.ManyToOne;
+import de.splitstudio.androidb.annotation.ManyToOne.Action;
+import de.splitstudio.androidb.annotation.OneToMany;
+
+/**
+ * Describes a {@link ManyToOne} or {@link OneToMany} field of a {@link TableSchema}. It loads the related rows of a
+ * whole result set with one <code>IN (...)</code> query per {@link Table#MAX_BIND_ARGS} rows and stitches them into
+ * the fields, so there's no query per row.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class Relation {
+
+	private final Field field;
+
+	private final Class<? extends Table> owner;
+
+	private final Class<? extends Table> target;
+
+	private final boolean toMany;
+
+	/** The foreign key column of a {@link ManyToOne} relation. */
+	private final String column;
+
+	/** The inverse {@link ManyToOne} field of a {@link OneToMany} relation. */
+	private final String mappedBy;
+
+	private final Action onDelete;
+
+	private Relation(final Field field, final Class<? extends Table> owner, final Class<? extends Table> target,
+			final String column, final String mappedBy, final Action onDelete) {
+		field.setAccessible(true);
+		this.field = field;
+		this.owner = owner;
+		this.target = target;
+		this.toMany = mappedBy != null;
+		this.column = column;
+		this.mappedBy = mappedBy;
+		this.onDelete = onDelete;
+	}
+
+	/**
+	 * @param owner the table class declaring field.
+	 * @param field any field of owner.
+	 * @return the relation of the field, <code>null</code> when it isn't annotated as one.
+	 * @throws IllegalStateException when the field's type doesn't fit to its annotation.
+	 */
+	@SuppressWarnings("unchecked")
+	static Relation of(final Class<? extends Table> owner, final Field field) {
+		ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+		if (manyToOne != null) {
+			if (!Table.class.isAssignableFrom(field.getType())) {
+				throw new IllegalStateException("@ManyToOne field " + field + " has to be a Table");
+			}
+			return new Relation(field, owner, (Class<? extends Table>) field.getType(), manyToOne.column(), null,
+				manyToOne.onDelete());
+		}
+		OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+		if (oneToMany != null) {
+			Type type = field.getGenericType();
+			if (!field.getType().isAssignableFrom(ArrayList.class) || !(type instanceof ParameterizedType)
+					|| !(((ParameterizedType) type).getActualTypeArguments()[0] instanceof Class<?>)) {
+				throw new IllegalStateException("@OneToMany field " + field + " has to be a List of Tables");
+			}
+			Class<?> child = (Class<?>) ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (!Table.class.isAssignableFrom(child)) {
+				throw new IllegalStateException("@OneToMany field " + field + " has to be a List of Tables");
+			}
+			return new Relation(field, owner, (Class<? extends Table>) child, null, oneToMany.mappedBy(), null);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the field name.
+	 */
+	public String getName() {
+		return field.getName();
+	}
+
+	/**
+	 * @return the related table: the parent of a {@link ManyToOne}, the child of a {@link OneToMany} relation.
+	 */
+	public Class<? extends Table> getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return <code>true</code> for a {@link OneToMany} relation.
+	 */
+	public boolean isToMany() {
+		return toMany;
+	}
+
+	/**
+	 * @return the foreign key column: in the owner for {@link ManyToOne}, in the target for {@link OneToMany}.
+	 */
+	public String getColumn() {
+		return toMany ? getInverse().column : column;
+	}
+
+	/**
+	 * @return the action on deletion of the parent, <code>null</code> for {@link OneToMany} relations.
+	 */
+	public Action getOnDelete() {
+		return onDelete;
+	}
+
+	/**
+	 * @return the FOREIGN KEY clause of a {@link ManyToOne} relation.
+	 */
+	String getForeignKeySql() {
+		return "FOREIGN KEY (" + column + ") REFERENCES " + Table.getTableName(target) + " (" + Table.PRIMARY_KEY
+				+ ") ON DELETE " + onDelete.toSql();
+	}
+
+	/**
+	 * @return the {@link ManyToOne} relation of the child, which this {@link OneToMany} relation is mapped by.
+	 */
+	private Relation getInverse() {
+		Relation inverse = TableSchema.of(target).getRelation(mappedBy);
+		if (inverse == null || inverse.toMany || !inverse.target.isAssignableFrom(owner)) {
+			throw new IllegalStateException("@OneToMany field " + field + " is mapped by " + mappedBy
+					+ ", which is no @ManyToOne field of " + target.getSimpleName());
+		}
+		return inverse;
+	}
+
+	Object get(final Table table) {
+		try {
+			return field.get(table);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	void set(final Table table, final Object value) {
+		try {
+			field.set(table, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Loads the related rows of all rows and sets them into the relation field. Children of a {@link OneToMany}
+	 * relation get their parent set, too.
+	 *
+	 * @param rows rows of the owner.
+	 */
+	void load(final List<? extends Table> rows) {
+		if (toMany) {
+			loadChildren(rows);
+		} else {
+			loadParents(rows);
+		}
+	}
+
+	private void loadParents(final List<? extends Table> rows) {
+		ColumnDescriptor foreignKey = TableSchema.of(owner).getColumn(column);
+		Set<Long> ids = new LinkedHashSet<Long>();
+		for (Table row : rows) {
+			Object id = foreignKey.get(row);
+			if (id != null) {
+				ids.add(((Number) id).longValue());
+			}
+		}
+		Map<Long, Table> parents = new HashMap<Long, Table>();
+		for (Table parent : findIn(target, Table.PRIMARY_KEY, ids)) {
+			parents.put(parent.getId(), parent);
+		}
+		for (Table row : rows) {
+			Object id = foreignKey.get(row);
+			set(row, id == null ? null : parents.get(((Number) id).longValue()));
+		}
+	}
+
+	private void loadChildren(final List<? extends Table> rows) {
+		Relation inverse = getInverse();
+		ColumnDescriptor foreignKey = TableSchema.of(target).getColumn(inverse.column);
+		Map<Long, List<Table>> children = new HashMap<Long, List<Table>>();
+		for (Table row : rows) {
+			if (!row.isNew()) {
+				children.put(row.getId(), new ArrayList<Table>());
+			}
+		}
+		for (Table child : findIn(target, inverse.column, children.keySet())) {
+			children.get(((Number) foreignKey.get(child)).longValue()).add(child);
+		}
+		for (Table row : rows) {
+			List<Table> list = row.isNew() ? new ArrayList<Table>() : children.get(row.getId());
+			for (Table child : list) {
+				inverse.set(child, row);
+			}
+			set(row, list);
+		}
+	}
+
+	/**
+	 * @return all rows of klaas with a value of column in ids, ordered by their primary key.
+	 */
+	private static List<Table> findIn(final Class<? extends Table> klaas, final String column,
+			final Collection<Long> ids) {
+		List<Table> rows = new ArrayList<Table>(ids.size());
+		Long[] all = ids.toArray(new Long[ids.size()]);
+		for (int offset = 0; offset < all.length; offset += Table.MAX_BIND_ARGS) {
+			int count = Math.min(Table.MAX_BIND_ARGS, all.length - offset);
+			Object[] args = new Object[count];
+			System.arraycopy(all, offset, args, 0, count);
+			StringBuilder in = new StringBuilder(column).append(" IN (?");
+			for (int i = 1; i < count; i++) {
+				in.append(",?");
+			}
+			in.append(')');
+			rows.addAll(Query.from(klaas).where(in.toString(), args).orderBy(Table.PRIMARY_KEY).list());
+		}
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		return owner.getSimpleName() + "." + getName() + (toMany ? " -> List<" : " -> ") + target.getSimpleName()
+				+ (toMany ? ">" : "");
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.util.ReflectionHelper;
+
+/**
+ * Maps the rows of one cursor into {@link Table} objects. All cursor column indices and {@link FieldType}s are
+ * resolved once, when the mapper is created, so filling a row won't do any lookups anymore. Create a new mapper for
+ * each cursor.
+ *
+ * @param <T> Type of the mapped tables.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class RowMapper<T extends Table> {
+
+	private final Class<? extends T> klaas;
+
+	private final TableSchema schema;
+
+	private final ColumnDescriptor[] columns;
+
+	private final int[] indices;
+
+	/** Positions of the columns missing in the cursor, <code>null</code> when all columns are there. */
+	private final boolean[] unloaded;
+
+	private Constructor<? extends T> constructor;
+
+	/**
+	 * @param klaas class of the mapped tables.
+	 * @param c the cursor to resolve the column indices from.
+	 */
+	public RowMapper(final Class<? extends T> klaas, final Cursor c) {
+		this.klaas = klaas;
+		this.schema = TableSchema.of(klaas);
+		Table.ensureSchema(klaas);
+		List<ColumnDescriptor> all = schema.getColumns();
+		ColumnDescriptor[] columns = new ColumnDescriptor[all.size()];
+		int[] indices = new int[all.size()];
+		boolean[] unloaded = new boolean[all.size()];
+		int count = 0;
+		for (ColumnDescriptor column : all) {
+			int index = c.getColumnIndex(column.getName());
+			if (index >= 0) {
+				columns[count] = column;
+				indices[count] = index;
+				count++;
+			} else {
+				unloaded[column.getPosition()] = true;
+			}
+		}
+		this.unloaded = count < all.size() ? unloaded : null;
+		this.columns = new ColumnDescriptor[count];
+		this.indices = new int[count];
+		System.arraycopy(columns, 0, this.columns, 0, count);
+		System.arraycopy(indices, 0, this.indices, 0, count);
+	}
+
+	/**
+	 * Fills the current row of the cursor into table. Afterwards, table remembers the loaded values to detect changes
+	 * (see {@link Table#getDirtyColumns()}) and which columns were missing (see {@link Table#fetch(String)}).
+	 *
+	 * @param table the object to fill. It has to be an instance of the mapped class.
+	 * @param c the cursor, this mapper was created for.
+	 */
+	public void fill(final Table table, final Cursor c) {
+		for (int i = 0; i < columns.length; i++) {
+			schema.read(table, columns[i], c, indices[i]);
+		}
+		table.takeSnapshot();
+		table.setUnloaded(unloaded == null ? null : unloaded.clone());
+	}
+
+	/**
+	 * Creates a new instance and fills it with the current row of the cursor.
+	 *
+	 * @param c the cursor, this mapper was created for.
+	 * @return the filled table.
+	 */
+	public T map(final Cursor c) {
+		T table = newInstance();
+		fill(table, c);
+		return table;
+	}
+
+	/**
+	 * @return a new, empty instance of the mapped class. Created by the generated {@link TableBinder}, when available.
+	 *         The schema was already ensured by this mapper, so the constructor skips all schema checks.
+	 */
+	@SuppressWarnings("unchecked")
+	public T newInstance() {
+		Class<?> previous = Table.setHydrating(klaas);
+		try {
+			if (schema.getBinder() != null) {
+				return (T) schema.getBinder().newInstance();
+			}
+			if (constructor == null) {
+				constructor = ReflectionHelper.getConstructor(klaas);
+			}
+			return constructor.newInstance();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("This should not happen. Could not instantiate claas " + klaas, e);
+		} finally {
+			Table.setHydrating(previous);
+		}
+	}
+
+}
@@ -0,0 +1,392 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import de.splitstudio.androidb.DbListener.Operation;
+
+/**
+ * Migrates an existing table to its current {@link TableSchema} without losing rows. It compares the schema with
+ * <code>PRAGMA table_info</code>, <code>PRAGMA foreign_key_list</code> and the indices in <code>sqlite_master</code>
+ * and applies the cheapest statements:
+ * <ul>
+ * <li>new columns are added with <code>ALTER TABLE ADD COLUMN</code>. NOT NULL columns get the default of their type
+ * (0, '' or an empty BLOB) for the existing rows.</li>
+ * <li>removed columns, changed types or constraints and changed foreign keys need a rebuild: the rows are copied into
+ * a new table, which replaces the old one.</li>
+ * <li>changed indices are dropped and created again. Undeclared ones are dropped, when their name starts with
+ * <code>idx_</code> or <code>fk_</code> like the indices of androiDB. Others were created by the app itself, so they
+ * are kept and created again after a rebuild.</li>
+ * <li>changed full-text columns create the FTS4 table again and index all rows.</li>
+ * </ul>
+ * An unchanged table isn't touched at all. {@link Table#onUpgrade(int, int)} calls it by default within one
+ * transaction, while foreign keys are switched off.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public final class SchemaMigration {
+
+	private static final String TAG = SchemaMigration.class.getSimpleName();
+
+	/** Name prefixes of the indices, which belong to androiDB: the declared ones and those of the foreign keys. */
+	private static final String[] INDEX_PREFIXES = { "idx_", "fk_" };
+
+	private final TableSchema schema;
+
+	private final String tableName;
+
+	private final SQLiteDatabase db;
+
+	private SchemaMigration(final TableSchema schema, final SQLiteDatabase db) {
+		this.schema = schema;
+		this.tableName = schema.getTableName();
+		this.db = db;
+	}
+
+	/**
+	 * Migrates the table of klaas. Call it while holding the writer lock, preferably within a transaction.
+	 *
+	 * @param klaas the table class.
+	 * @return <code>true</code>, when the table had to be changed.
+	 * @throws IllegalStateException when a rebuild is needed, but foreign keys are still switched on. Dropping the old
+	 *             table would trigger the foreign key actions of the referencing tables then.
+	 */
+	public static boolean migrate(final Class<? extends Table> klaas) {
+		DatabaseContext context = Table.getDbContext();
+		context.lockWriter();
+		try {
+			TableSchema schema = TableSchema.of(klaas);
+			boolean changed = new SchemaMigration(schema, context.getWriter()).migrate();
+			if (changed) {
+				//compiled statements might refer to the old table.
+				context.closeStatements();
+				Table.invalidateAll(schema.getTableName());
+			}
+			return changed;
+		} finally {
+			context.unlockWriter();
+		}
+	}
+
+	private boolean migrate() {
+		Map<String, ColumnInfo> existing = readColumns();
+		if (existing.isEmpty()) {
+			//not created yet.
+			return false;
+		}
+		boolean rebuild = !readForeignKeys().equals(expectedForeignKeys());
+		List<ColumnDescriptor> added = new ArrayList<ColumnDescriptor>();
+		for (ColumnDescriptor column : schema.getColumns()) {
+			ColumnInfo info = existing.remove(column.getName());
+			if (info == null) {
+				added.add(column);
+				rebuild |= column.isPrimaryKey();
+			} else if (!info.matches(column)) {
+				rebuild = true;
+			}
+		}
+		//all remaining columns were removed.
+		rebuild |= !existing.isEmpty();
+
+		if (rebuild) {
+			rebuild(added);
+			//the triggers were dropped together with the old table.
+			migrateFullText(true);
+			return true;
+		}
+		for (ColumnDescriptor column : added) {
+			StringBuilder sql = new StringBuilder("ALTER TABLE ").append(tableName).append(" ADD COLUMN ");
+			sql.append(column.getName()).append(' ').append(column.getSqlType()).append(column.getConstraints());
+			if (column.getColumn().notNull()) {
+				sql.append(" DEFAULT ").append(defaultValue(column));
+			}
+			exec(sql.toString());
+		}
+		boolean indices = migrateIndices();
+		boolean fullText = migrateFullText(false);
+		return indices || fullText || !added.isEmpty();
+	}
+
+	/**
+	 * Copies all rows into a new table, which replaces the old one. The indices are created again.
+	 *
+	 * @param added the new columns. NOT NULL ones get their default value.
+	 */
+	private void rebuild(final List<ColumnDescriptor> added) {
+		if (queryForLong("PRAGMA foreign_keys") != 0L) {
+			throw new IllegalStateException("Table " + tableName
+				+ " has to be rebuilt, which needs foreign keys to be switched off outside of a transaction");
+		}
+		String copy = tableName + "_migration";
+		StringBuilder names = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (ColumnDescriptor column : schema.getColumns()) {
+			String value = column.getName();
+			if (added.contains(column)) {
+				if (!column.getColumn().notNull()) {
+					continue;
+				}
+				value = defaultValue(column);
+			} else if (column.getColumn().notNull()) {
+				value = "COALESCE(" + column.getName() + ", " + defaultValue(column) + ")";
+			}
+			if (names.length() > 0) {
+				names.append(", ");
+				values.append(", ");
+			}
+			names.append(column.getName());
+			values.append(value);
+		}
+		Map<String, String> undeclared = readIndices();
+		undeclared.keySet().removeAll(schema.getCreateIndexSql().keySet());
+		exec("DROP TABLE IF EXISTS " + copy);
+		exec(schema.getCreateTableSql(copy));
+		exec("INSERT INTO " + copy + " (" + names + ") SELECT " + values + " FROM " + tableName);
+		exec("DROP TABLE " + tableName);
+		exec("ALTER TABLE " + copy + " RENAME TO " + tableName);
+		for (String sql : schema.getCreateIndexSql().values()) {
+			exec(sql);
+		}
+		for (Map.Entry<String, String> index : undeclared.entrySet()) {
+			if (isAndroidbIndex(index.getKey())) {
+				continue;
+			}
+			try {
+				exec(index.getValue());
+			} catch (SQLException e) {
+				//e.g. a removed column was indexed.
+				Log.w(TAG, "Could not create index " + index.getKey() + " again after rebuilding " + tableName, e);
+			}
+		}
+		Cursor c = db.rawQuery("PRAGMA foreign_key_check(" + tableName + ")", null);
+		try {
+			if (c.moveToFirst()) {
+				throw new IllegalStateException("Table " + tableName + " violates its foreign keys after migration");
+			}
+		} finally {
+			c.close();
+		}
+	}
+
+	/**
+	 * @return the CREATE statements of the existing indices by their name.
+	 */
+	private Map<String, String> readIndices() {
+		Map<String, String> indices = new HashMap<String, String>();
+		Cursor c = db.rawQuery("SELECT name, sql FROM sqlite_master WHERE type = 'index' AND tbl_name = ?",
+			new String[] { tableName });
+		try {
+			while (c.moveToNext()) {
+				//automatic indices of PRIMARY KEY and UNIQUE constraints have no sql.
+				if (!c.isNull(1)) {
+					indices.put(c.getString(0), c.getString(1));
+				}
+			}
+		} finally {
+			c.close();
+		}
+		return indices;
+	}
+
+	/**
+	 * @return <code>true</code>, when the index is named like those of androiDB (see {@link #INDEX_PREFIXES}).
+	 *         Other indices were created by the app.
+	 */
+	private boolean isAndroidbIndex(final String name) {
+		for (String prefix : INDEX_PREFIXES) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops the undeclared indices of androiDB and creates the missing or changed ones. Indices created by the app are
+	 * kept with a warning, unless they are declared.
+	 *
+	 * @return <code>true</code>, when an index was changed.
+	 */
+	private boolean migrateIndices() {
+		Map<String, String> existing = readIndices();
+
+		boolean changed = false;
+		Map<String, String> expected = schema.getCreateIndexSql();
+		for (Map.Entry<String, String> index : expected.entrySet()) {
+			String sql = existing.remove(index.getKey());
+			if (sql == null || !sql.equals(index.getValue().replace(" IF NOT EXISTS", ""))) {
+				exec("DROP INDEX IF EXISTS " + index.getKey());
+				exec(index.getValue());
+				changed = true;
+			}
+		}
+		for (String name : existing.keySet()) {
+			if (isAndroidbIndex(name)) {
+				exec("DROP INDEX IF EXISTS " + name);
+				changed = true;
+			} else {
+				Log.w(TAG, "Keeping undeclared index " + name + " of " + tableName + ", it wasn't created by androiDB");
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Creates the FTS4 table and its triggers again and indexes all rows, when the full-text columns changed.
+	 *
+	 * @param force <code>true</code> to create them again anyway, as long as there are full-text columns.
+	 * @return <code>true</code>, when they were changed.
+	 */
+	private boolean migrateFullText(final boolean force) {
+		String fts = schema.getFullTextTableName();
+		String existing = null;
+		Cursor c = db.rawQuery("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+			new String[] { fts });
+		try {
+			if (c.moveToFirst()) {
+				existing = c.getString(0);
+			}
+		} finally {
+			c.close();
+		}
+		List<String> create = schema.getCreateFullTextSql();
+		String expected = create.isEmpty() ? null : create.get(0).replace(" IF NOT EXISTS", "");
+		if (existing == null ? expected == null : !force && existing.equals(expected)) {
+			return false;
+		}
+		for (String trigger : schema.getFullTextTriggerNames()) {
+			exec("DROP TRIGGER IF EXISTS " + trigger);
+		}
+		exec("DROP TABLE IF EXISTS " + fts);
+		for (String sql : create) {
+			exec(sql);
+		}
+		if (!create.isEmpty()) {
+			exec(schema.getRebuildFullTextSql());
+		}
+		return true;
+	}
+
+	private Map<String, ColumnInfo> readColumns() {
+		Map<String, ColumnInfo> columns = new HashMap<String, ColumnInfo>();
+		Cursor c = db.rawQuery("PRAGMA table_info(" + tableName + ")", null);
+		try {
+			int name = c.getColumnIndex("name");
+			int type = c.getColumnIndex("type");
+			int notNull = c.getColumnIndex("notnull");
+			int pk = c.getColumnIndex("pk");
+			while (c.moveToNext()) {
+				columns.put(c.getString(name), new ColumnInfo(c.getString(type), c.getInt(notNull) != 0,
+					c.getInt(pk) != 0));
+			}
+		} finally {
+			c.close();
+		}
+		return columns;
+	}
+
+	private Set<String> readForeignKeys() {
+		Set<String> keys = new HashSet<String>();
+		Cursor c = db.rawQuery("PRAGMA foreign_key_list(" + tableName + ")", null);
+		try {
+			int table = c.getColumnIndex("table");
+			int from = c.getColumnIndex("from");
+			int onDelete = c.getColumnIndex("on_delete");
+			while (c.moveToNext()) {
+				keys.add(c.getString(from) + " " + c.getString(table) + " " + c.getString(onDelete));
+			}
+		} finally {
+			c.close();
+		}
+		return keys;
+	}
+
+	private Set<String> expectedForeignKeys() {
+		Set<String> keys = new HashSet<String>();
+		for (Relation relation : schema.getRelations().values()) {
+			if (!relation.isToMany()) {
+				keys.add(relation.getColumn() + " " + Table.getTableName(relation.getTarget()) + " "
+						+ relation.getOnDelete().toSql());
+			}
+		}
+		return keys;
+	}
+
+	private static String defaultValue(final ColumnDescriptor column) {
+		switch (column.getSqlType()) {
+		case TEXT:
+			return "''";
+		case BLOB:
+			return "X''";
+		default:
+			return "0";
+		}
+	}
+
+	private long queryForLong(final String sql) {
+		Cursor c = db.rawQuery(sql, null);
+		try {
+			return c.moveToFirst() ? c.getLong(0) : 0L;
+		} finally {
+			c.close();
+		}
+	}
+
+	private void exec(final String sql) {
+		long start = Table.startTimer();
+		try {
+			db.execSQL(sql);
+		} finally {
+			if (start != 0L) {
+				Table.notifyListeners(Operation.SCHEMA, tableName, sql, start, 0, 0L);
+			}
+		}
+	}
+
+	/**
+	 * A column as described by <code>PRAGMA table_info</code>.
+	 */
+	private static final class ColumnInfo {
+
+		private final String type;
+
+		private final boolean notNull;
+
+		private final boolean primaryKey;
+
+		ColumnInfo(final String type, final boolean notNull, final boolean primaryKey) {
+			this.type = type;
+			this.notNull = notNull;
+			this.primaryKey = primaryKey;
+		}
+
+		boolean matches(final ColumnDescriptor column) {
+			return type.equalsIgnoreCase(column.getSqlType().name()) && notNull == column.getColumn().notNull()
+					&& primaryKey == column.isPrimaryKey();
+		}
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+import de.splitstudio.androidb.DbListener.Operation;
+import de.splitstudio.androidb.annotation.Column;
+
+/**
+ * Searches the {@link Column#fullText() full-text columns} of a table with <code>MATCH</code>, so it's an index
+ * lookup instead of a scan with <code>LIKE '%term%'</code>:
+ *
+ * <pre>
+ * List&lt;Note&gt; notes = Search.from(Note.class, &quot;milk OR bread*&quot;).limit(20).list();
+ * </pre>
+ *
+ * The matches are ranked first, using only the FTS index: each phrase adds its hits in a column divided by its hits
+ * in all rows, so rare terms weigh more. Android's SQLite neither offers FTS5 nor a built-in rank function, so this
+ * happens here with <code>matchinfo()</code>. Only the rows within {@link #limit(int)} and {@link #offset(int)} get
+ * loaded afterwards. See the SQLite documentation of FTS4 for the query syntax.
+ *
+ * @param <T> Type of the searched tables.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class Search<T extends Table> {
+
+	/** Bind arguments of the MATCH and the snippet, which are added to each chunk of ids. */
+	private static final int EXTRA_ARGS = 5;
+
+	private final Class<T> klaas;
+
+	private final TableSchema schema;
+
+	private final String match;
+
+	private int limit = -1;
+
+	private int offset = -1;
+
+	private String snippetStart = "<b>";
+
+	private String snippetEnd = "</b>";
+
+	private String snippetEllipsis = "...";
+
+	private int snippetTokens = 15;
+
+	private Search(final Class<T> klaas, final String match) {
+		this.klaas = klaas;
+		this.schema = TableSchema.of(klaas);
+		this.match = match;
+		if (schema.getFullTextColumns().isEmpty()) {
+			throw new IllegalArgumentException("Table " + schema.getTableName() + " has no full-text column");
+		}
+	}
+
+	/**
+	 * @param klaas Class to instantiate T. It needs at least one full-text column.
+	 * @param match the FTS query, e.g. <code>"milk"</code>, <code>"bread*"</code>, <code>"name:milk"</code> or
+	 *            <code>"\"fresh milk\" OR bread"</code>.
+	 * @return a search over all full-text columns.
+	 */
+	public static <T extends Table> Search<T> from(final Class<T> klaas, final String match) {
+		return new Search<T>(klaas, match);
+	}
+
+	/**
+	 * @param limit maximal number of rows, -1 for all.
+	 */
+	public Search<T> limit(final int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * @param offset number of best rows to skip, -1 for none.
+	 */
+	public Search<T> offset(final int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Configures the snippets of {@link #hits()}.
+	 *
+	 * @param start text in front of each matching term, <code>"&lt;b&gt;"</code> by default.
+	 * @param end text after each matching term, <code>"&lt;/b&gt;"</code> by default.
+	 * @param ellipsis text marking the omitted parts, <code>"..."</code> by default.
+	 * @param tokens maximal number of tokens, 15 by default.
+	 */
+	public Search<T> snippet(final String start, final String end, final String ellipsis, final int tokens) {
+		this.snippetStart = start;
+		this.snippetEnd = end;
+		this.snippetEllipsis = ellipsis;
+		this.snippetTokens = tokens;
+		return this;
+	}
+
+	/**
+	 * @return the matching rows, the best ones first.
+	 */
+	public List<T> list() {
+		List<Hit<T>> hits = findHits();
+		load(hits, false);
+		List<T> rows = new ArrayList<T>(hits.size());
+		for (Hit<T> hit : hits) {
+			rows.add(hit.row);
+		}
+		return rows;
+	}
+
+	/**
+	 * @return the matching rows with their rank and snippet, the best ones first.
+	 */
+	public List<Hit<T>> hits() {
+		List<Hit<T>> hits = findHits();
+		load(hits, true);
+		return hits;
+	}
+
+	/**
+	 * @return the number of matching rows.
+	 */
+	public int count() {
+		Table.ensureSchema(klaas);
+		String fts = schema.getFullTextTableName();
+		String sql = "SELECT COUNT(*) FROM " + fts + " WHERE " + fts + " MATCH ?";
+		SQLiteStatement statement = Table.getReadableDb().compileStatement(sql);
+		long start = Table.startTimer();
+		try {
+			statement.bindString(1, match);
+			return (int) statement.simpleQueryForLong();
+		} finally {
+			statement.close();
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, schema.getTableName(), sql, start, 1, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Ranks all matches by the FTS index only, without touching the table.
+	 *
+	 * @return the hits within {@link #offset} and {@link #limit} without rows, the best ones first.
+	 */
+	private List<Hit<T>> findHits() {
+		Table.ensureSchema(klaas);
+		String fts = schema.getFullTextTableName();
+		String sql = "SELECT docid, matchinfo(" + fts + ", 'pcx') FROM " + fts + " WHERE " + fts + " MATCH ?";
+		long start = Table.startTimer();
+		List<Hit<T>> hits = new ArrayList<Hit<T>>();
+		Cursor c = Table.getReadableDb().rawQuery(sql, new String[] { match });
+		try {
+			while (c.moveToNext()) {
+				hits.add(new Hit<T>(c.getLong(0), rank(c.getBlob(1))));
+			}
+		} finally {
+			c.close();
+			if (start != 0L) {
+				Table.notifyListeners(Operation.QUERY, schema.getTableName(), sql, start, hits.size(), 0L);
+			}
+		}
+		Collections.sort(hits, new Comparator<Hit<T>>() {
+
+			public int compare(final Hit<T> a, final Hit<T> b) {
+				int result = Double.compare(b.rank, a.rank);
+				return result != 0 ? result : (a.id < b.id ? -1 : (a.id == b.id ? 0 : 1));
+			}
+		});
+		int from = Math.min(Math.max(offset, 0), hits.size());
+		int to = limit < 0 ? hits.size() : Math.min(from + limit, hits.size());
+		return new ArrayList<Hit<T>>(hits.subList(from, to));
+	}
+
+	/**
+	 * @param matchInfo the result of <code>matchinfo(fts, 'pcx')</code>: the number of phrases p and columns c,
+	 *            followed by three values per phrase and column: hits in this row, hits in all rows and rows with
+	 *            hits.
+	 * @return the sum of hits in this row divided by hits in all rows over all phrases and columns.
+	 */
+	static double rank(final byte[] matchInfo) {
+		ByteBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+		int phrases = info.getInt(0);
+		int columns = info.getInt(4);
+		double rank = 0d;
+		for (int i = 0; i < phrases * columns; i++) {
+			int hits = info.getInt(8 + i * 12);
+			if (hits > 0) {
+				rank += (double) hits / info.getInt(12 + i * 12);
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * Loads the rows of all hits in chunks of {@link Table#MAX_BIND_ARGS} ids.
+	 */
+	private void load(final List<Hit<T>> hits, final boolean snippets) {
+		Map<Long, Hit<T>> byId = new HashMap<Long, Hit<T>>(hits.size() * 2);
+		for (Hit<T> hit : hits) {
+			byId.put(hit.id, hit);
+		}
+		int chunkSize = Table.MAX_BIND_ARGS - EXTRA_ARGS;
+		for (int offset = 0; offset < hits.size(); offset += chunkSize) {
+			List<Hit<T>> chunk = hits.subList(offset, Math.min(offset + chunkSize, hits.size()));
+			String[] args = new String[chunk.size() + (snippets ? EXTRA_ARGS : 0)];
+			int arg = 0;
+			String sql = toSql(chunk.size(), snippets);
+			if (snippets) {
+				args[arg++] = snippetStart;
+				args[arg++] = snippetEnd;
+				args[arg++] = snippetEllipsis;
+				args[arg++] = String.valueOf(snippetTokens);
+				args[arg++] = match;
+			}
+			for (Hit<T> hit : chunk) {
+				args[arg++] = String.valueOf(hit.id);
+			}
+			long start = Table.startTimer();
+			int rows = 0;
+			Cursor c = Table.getReadableDb().rawQuery(sql, args);
+			try {
+				RowMapper<T> mapper = new RowMapper<T>(klaas, c);
+				int snippet = c.getColumnIndex("_snippet");
+				int id = c.getColumnIndex(Table.PRIMARY_KEY);
+				while (c.moveToNext()) {
+					Hit<T> hit = byId.get(c.getLong(id));
+					hit.row = mapper.map(c);
+					hit.snippet = snippets ? c.getString(snippet) : null;
+					rows++;
+				}
+			} finally {
+				c.close();
+				if (start != 0L) {
+					Table.notifyListeners(Operation.QUERY, schema.getTableName(), sql, start, rows, 0L);
+				}
+			}
+		}
+		//rows deleted since ranking.
+		for (int i = hits.size() - 1; i >= 0; i--) {
+			if (hits.get(i).row == null) {
+				hits.remove(i);
+			}
+		}
+	}
+
+	private String toSql(final int ids, final boolean snippets) {
+		String tableName = schema.getTableName();
+		String fts = schema.getFullTextTableName();
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (String column : schema.getEagerColumnNames()) {
+			sql.append(tableName).append('.').append(column).append(" AS ").append(column).append(", ");
+		}
+		if (snippets) {
+			sql.append("snippet(").append(fts).append(", ?, ?, ?, -1, ?) AS _snippet FROM ").append(tableName);
+			sql.append(" JOIN ").append(fts).append(" ON ").append(fts).append(".docid = ").append(tableName);
+			sql.append('.').append(Table.PRIMARY_KEY).append(" WHERE ").append(fts).append(" MATCH ? AND ");
+		} else {
+			sql.setLength(sql.length() - 2);
+			sql.append(" FROM ").append(tableName).append(" WHERE ");
+		}
+		sql.append(tableName).append('.').append(Table.PRIMARY_KEY).append(" IN (?");
+		for (int i = 1; i < ids; i++) {
+			sql.append(",?");
+		}
+		return sql.append(')').toString();
+	}
+
+	@Override
+	public String toString() {
+		return "Search " + schema.getTableName() + " MATCH " + match;
+	}
+
+	/**
+	 * A matching row with its rank and snippet.
+	 *
+	 * @param <T> Type of the row.
+	 */
+	public static class Hit<T extends Table> {
+
+		private final long id;
+
+		private final double rank;
+
+		private T row;
+
+		private String snippet;
+
+		Hit(final long id, final double rank) {
+			this.id = id;
+			this.rank = rank;
+		}
+
+		public T getRow() {
+			return row;
+		}
+
+		/**
+		 * @return the rank, higher is better. Only comparable within one search.
+		 */
+		public double getRank() {
+			return rank;
+		}
+
+		/**
+		 * @return the text around the matching terms, which are surrounded by the markers of
+		 *         {@link Search#snippet(String, String, String, int)}.
+		 */
+		public String getSnippet() {
+			return snippet;
+		}
+
+		@Override
+		public String toString() {
+			return rank + ": " + row + (snippet == null ? "" : " (" + snippet + ")");
+		}
+	}
+}
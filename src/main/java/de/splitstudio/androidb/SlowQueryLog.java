@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import android.util.Log;
+
+/**
+ * Logs all operations, which took longer than a threshold. Use a threshold of 0 to log each operation.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SlowQueryLog implements DbListener {
+
+	/** Default threshold in ms. */
+	public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+	private static final String TAG = SlowQueryLog.class.getSimpleName();
+
+	private volatile long thresholdNanos;
+
+	public SlowQueryLog() {
+		this(DEFAULT_THRESHOLD_MILLIS);
+	}
+
+	/**
+	 * @param thresholdMillis operations taking at least this long will be logged.
+	 */
+	public SlowQueryLog(final long thresholdMillis) {
+		setThresholdMillis(thresholdMillis);
+	}
+
+	public long getThresholdMillis() {
+		return thresholdNanos / 1000000L;
+	}
+
+	public void setThresholdMillis(final long thresholdMillis) {
+		if (thresholdMillis < 0) {
+			throw new IllegalArgumentException("Threshold has to be >= 0, but was " + thresholdMillis);
+		}
+		this.thresholdNanos = thresholdMillis * 1000000L;
+	}
+
+	public void onOperation(final Operation operation, final String tableName, final String sql, final long nanos,
+			final int rows, final long bytes) {
+		if (nanos >= thresholdNanos) {
+			Log.w(TAG, String.format("%s on %s took %.3f ms (%d rows, %d bytes): %s", operation, tableName,
+				nanos / 1000000d, rows, bytes, sql));
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Holds compiled {@link SQLiteStatement}s of a single database connection, so each SQL text will be parsed only once.
+ * Only the {@link #getMaxSize()} last recently used statements are kept, the eldest one gets closed. So only use the
+ * statements of the writer while holding {@link DatabaseContext#lockWriter()} and those of a reader while
+ * synchronized on its cache, then no other thread can evict a statement you are still using. All statements become
+ * invalid, when the connection gets closed, so {@link #close()} this cache together with its database.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+class StatementCache {
+
+	/** Default number of cached statements. */
+	static final int DEFAULT_MAX_SIZE = 64;
+
+	private final SQLiteDatabase db;
+
+	private final int maxSize;
+
+	private final Map<String, SQLiteStatement> statements;
+
+	StatementCache(final SQLiteDatabase db) {
+		this(db, DEFAULT_MAX_SIZE);
+	}
+
+	StatementCache(final SQLiteDatabase db, final int maxSize) {
+		this.db = db;
+		this.maxSize = maxSize;
+		this.statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, SQLiteStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					eldest.getValue().close();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Retrieves the compiled statement for sql. It will be compiled on first access.
+	 *
+	 * @param sql the SQL text with <code>?</code> placeholders.
+	 * @return the compiled statement.
+	 */
+	synchronized SQLiteStatement get(final String sql) {
+		SQLiteStatement statement = statements.get(sql);
+		if (statement == null) {
+			statement = db.compileStatement(sql);
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	synchronized int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes all compiled statements. The cache stays usable and compiles them again on demand, e.g. after a schema
+	 * change.
+	 */
+	synchronized void close() {
+		for (SQLiteStatement statement : statements.values()) {
+			statement.close();
+		}
+		statements.clear();
+	}
+}
@@ -15,16 +15,20 @@
  */
 package de.splitstudio.androidb;
 
+import java.io.File;
 import java.io.Serializable;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import android.content.Context;
 import android.database.Cursor;
@@ -32,8 +36,10 @@ import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
+import de.splitstudio.androidb.DbListener.Operation;
 import de.splitstudio.androidb.annotation.Column;
-import de.splitstudio.androidb.annotation.ColumnHelper;
+import de.splitstudio.androidb.annotation.ManyToOne;
+import de.splitstudio.androidb.annotation.OneToMany;
 import de.splitstudio.androidb.annotation.TableMetaData;
 import de.splitstudio.androidb.util.ReflectionHelper;
 
@@ -64,17 +70,41 @@ public abstract class Table implements Serializable {
 	/** SQL template for index creation */
 	public static final String SQL_CREATE_INDEX = "CREATE INDEX IF NOT EXISTS %s ON %s (%s)";
 
+	/** SQL template for unique index creation */
+	public static final String SQL_CREATE_UNIQUE_INDEX = "CREATE UNIQUE INDEX IF NOT EXISTS %s ON %s (%s)";
+
 	private static final String SPACE = " ";
 
 	private static final String DELIMITER = ",";
 
 	private static final String EQUAL = "=";
 
-	/** The database. Normally {@link Table} will create its own instance. */
-	private static SQLiteDatabase db = null;
+	/** SQLite's default limit of bind arguments per statement. */
+	public static final int MAX_BIND_ARGS = 999;
+
+	/** Number of rows changed by the last statement of a connection. */
+	private static final String SQL_CHANGES = "SELECT changes()";
+
+	/** Selection of a single row by its primary key. */
+	private static final String BY_ID = PRIMARY_KEY + " = ?";
+
+	/** The connections to the database. Normally {@link Table} will create its own instance. */
+	private static volatile DatabaseContext dbContext = null;
+
+	/** Number of read-only connections for {@link #openOrCreateDB(Context)}. */
+	private static int readerCount = DatabaseContext.DEFAULT_READERS;
+
+	/** Optional cache for {@link #find(Long)}, see {@link #enableCache(int)}. */
+	private static volatile EntityCache cache = null;
+
+	/** Writer thread for {@link #saveAsync()} and friends. It will be started on first use. */
+	private static WriteBehindQueue writeQueue = null;
 
-	/** Set to remember, which tables were already created. */
-	static final Set<String> createdTables = new HashSet<String>();
+	/** Registered listeners. The array will be replaced on changes, so notifying them needs no lock. */
+	private static volatile DbListener[] listeners = new DbListener[0];
+
+	/** The class, which {@link RowMapper} instantiates rows of, so their constructor skips all schema checks. */
+	private static final ThreadLocal<Class<?>> hydrating = new ThreadLocal<Class<?>>();
 
 	protected static final String TAG = Table.class.getSimpleName();
 
@@ -87,11 +117,22 @@ public abstract class Table implements Serializable {
 	/** The filename for the database. */
 	public static final String DB_FILENAME = "androidb" + DB_SUFFIX;
 
+	/** Default number of rows, which will be written in one transaction by bulk operations like {@link #saveAll}. */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+
+	/** Number of rows per transaction for the bulk operations. */
+	private static int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/** What the bulk operations should do with each row. */
+	private enum WriteMode {
+		INSERT, UPDATE, SAVE
+	}
+
 	/**
 	 * Welcome! Just provide your context, so we can access the physical database file. We will create or open a new
 	 * database file, which is called {@link #DB_FILENAME}.<br/>
 	 * At last, it tries to create the table in the database ({@link #createIfNecessary()}), when it can't remember to
-	 * have this done yet (see {@link #createdTables}.
+	 * have this done yet (see {@link DatabaseContext}.
 	 * 
 	 * @param context the context to provide your packagename and path to your app folder on the device.
 	 */
@@ -109,17 +150,97 @@ public abstract class Table implements Serializable {
 	public Table(final Long _id) {
 		//create or open db. Sorry for this ugly stuff, but Java needs the constructor call as first entry.
 		this._id = _id;
-		createIfNecessary();
-		handleUpgrade();
+		if (hydrating.get() != getClass()) {
+			ensureSchema();
+		}
+	}
+
+	/**
+	 * Creates the table and handles upgrades, when this wasn't done yet for the current db (see
+	 * {@link DatabaseContext}). Concurrent callers wait until the first one is done.
+	 */
+	private void ensureSchema() {
+		DatabaseContext context = getDbContext();
+		String name = getTableName();
+		if (context.isCreated(name) && context.isChecked(name)) {
+			return;
+		}
+		context.lockWriter();
+		try {
+			createIfNecessary();
+			if (!context.isChecked(name)) {
+				//mark it first, so rows loaded within onUpgrade() won't check again.
+				context.setChecked(name, true);
+				try {
+					handleUpgrade();
+				} catch (RuntimeException e) {
+					context.setChecked(name, false);
+					throw e;
+				}
+				context.setChecked(name, true);
+			}
+		} finally {
+			context.unlockWriter();
+		}
 	}
 
-	public static SQLiteDatabase openOrCreateDB(final Context context) {
-		if (db == null || !db.isOpen()) {
-			db = context
-					.openOrCreateDatabase(DB_FILENAME, SQLiteDatabase.CREATE_IF_NECESSARY, null);
-			createdTables.clear();
+	/**
+	 * Ensures the schema of klaas once per db. Afterwards, rows can be instantiated with {@link #setHydrating(Class)}
+	 * without any checks.
+	 */
+	static void ensureSchema(final Class<? extends Table> klaas) {
+		String name = getTableName(klaas);
+		DatabaseContext context = getDbContext();
+		if (!context.isCreated(name) || !context.isChecked(name)) {
+			//the constructor does the job.
+			newInstance(klaas);
+		}
+	}
+
+	/**
+	 * While set, all constructed tables of klaas in the current thread skip the schema checks. Other tables, e.g.
+	 * created by the constructor of klaas, are still checked. Only set it around the instantiation of rows, whose
+	 * schema was already ensured by {@link #ensureSchema(Class)}.
+	 *
+	 * @param klaas the class to instantiate rows of, <code>null</code> to check all tables again.
+	 * @return the previous class, which has to be restored afterwards.
+	 */
+	static Class<?> setHydrating(final Class<?> klaas) {
+		Class<?> previous = hydrating.get();
+		hydrating.set(klaas);
+		return previous;
+	}
+
+	/**
+	 * Opens the database {@link #DB_FILENAME}, when it isn't open yet. Besides the returned writer, it opens
+	 * {@link #getReaderCount()} read-only connections, when WAL journaling is available (see {@link DatabaseContext}).
+	 * 
+	 * @param context the context to provide your packagename and path to your app folder on the device.
+	 * @return the writer connection.
+	 */
+	public static synchronized SQLiteDatabase openOrCreateDB(final Context context) {
+		DatabaseContext current = dbContext;
+		if (current == null || !current.isOpen()) {
+			SQLiteDatabase db = context.openOrCreateDatabase(DB_FILENAME, SQLiteDatabase.CREATE_IF_NECESSARY,
+				null);
+			dbContext = new DatabaseContext(db, readerCount);
 		}
-		return db;
+		return dbContext.getWriter();
+	}
+
+	/**
+	 * Same as {@link #openOrCreateDB(Context)}, but for any database file. Use it, where there is no {@link Context},
+	 * e.g. with the android-jvm backend on a plain JVM.
+	 * 
+	 * @param file the database file. It will be created, when it doesn't exist.
+	 * @return the writer connection.
+	 */
+	public static synchronized SQLiteDatabase openOrCreateDB(final File file) {
+		DatabaseContext current = dbContext;
+		if (current == null || !current.isOpen()) {
+			dbContext = new DatabaseContext(SQLiteDatabase.openOrCreateDatabase(file, null), readerCount);
+		}
+		return dbContext.getWriter();
 	}
 
 	private void handleUpgrade() {
@@ -135,16 +256,53 @@ public abstract class Table implements Serializable {
 			if (oldVersion == newVersion) {
 				return;
 			}
-			onUpgrade(oldVersion, newVersion);
+			upgrade(metaTable, oldVersion, newVersion);
 		} else {
 			metaTable.setTable(getTableName());
+			saveVersion(metaTable, newVersion);
 		}
-		metaTable.setTableVersion(newVersion);
+	}
+
+	/**
+	 * Runs {@link #onUpgrade(int, int)} and saves the new version within one transaction, so a failed upgrade leaves
+	 * the old table untouched. Foreign keys are switched off meanwhile, as rebuilding a referenced table would
+	 * trigger their actions. SQLite ignores that within a running transaction, then the caller has to care.
+	 */
+	private void upgrade(final Metadata metaTable, final int oldVersion, final int newVersion) {
+		SQLiteDatabase db = getDbContext().getWriter();
+		boolean foreignKeysOff = !db.inTransaction();
+		if (foreignKeysOff) {
+			db.execSQL("PRAGMA foreign_keys = OFF");
+		}
+		try {
+			db.beginTransaction();
+			try {
+				onUpgrade(oldVersion, newVersion);
+				saveVersion(metaTable, newVersion);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		} finally {
+			if (foreignKeysOff) {
+				db.execSQL("PRAGMA foreign_keys = ON");
+			}
+		}
+	}
+
+	private void saveVersion(final Metadata metaTable, final int version) {
+		metaTable.setTableVersion(version);
 		if (!metaTable.save()) {
 			throw new IllegalStateException("Could not save metadata for Table " + getTableName());
 		}
 	}
 
+	/** Column values as they were loaded or written the last time, see {@link #getDirtyColumns()}. */
+	private transient Object[] snapshot = null;
+
+	/** Columns, which weren't loaded with the row, see {@link #fetch(String)}. <code>null</code>, when all were. */
+	private transient boolean[] unloaded = null;
+
 	/** Teh omni-present primary key. NEVER overwrite this field!!! */
 	@Column(primaryKey = true, autoIncrement = true, notNull = true)
 	protected Long _id = null;
@@ -182,7 +340,7 @@ public abstract class Table implements Serializable {
 	 * @return the Cursor of this db operation. When no rows were selected, the cursor is empty.
 	 */
 	public Cursor all() {
-		return db.query(getTableName(), getColumnNames(), null, null, null, null, null);
+		return rawQuery(getTableName(), selectSql(getTableName(), getSchema().getEagerColumnNames(), null), null);
 	}
 
 	/**
@@ -191,162 +349,970 @@ public abstract class Table implements Serializable {
 	 * @return the Cursor of this db operation. When no rows were selected, the cursor is empty.
 	 */
 	public static <T extends Table> List<T> all(final Class<T> klaas) {
-		Cursor c = db.query(getTableName(klaas), getColumnNames(klaas), null, null, null, null,
-			null);
-		return fillAll(klaas, c);
+		return Query.from(klaas).list();
+	}
+
+	/**
+	 * Loads all rows of the table, but only the given columns (and the primary key). Use it for lists showing a few
+	 * columns only. The other columns can be loaded with {@link #fetch(String)}.
+	 * 
+	 * @param klaas Class to instantiate T.
+	 * @param columns the columns to select.
+	 * @return all rows.
+	 */
+	public static <T extends Table> List<T> all(final Class<T> klaas, final String... columns) {
+		return Query.from(klaas).columns(columns).list();
+	}
+
+	/**
+	 * Loads the related rows of all rows for each of the given {@link Relation}s with one query per relation (and per
+	 * {@link #MAX_BIND_ARGS} rows), see {@link Query#include(String...)}.
+	 * 
+	 * @param rows rows of the same table.
+	 * @param relations the names of {@link ManyToOne} or {@link OneToMany} fields.
+	 * @return rows.
+	 */
+	public static <T extends Table> List<T> include(final List<T> rows, final String... relations) {
+		if (rows.isEmpty()) {
+			return rows;
+		}
+		TableSchema schema = rows.get(0).getSchema();
+		for (String name : relations) {
+			Relation relation = schema.getRelation(name);
+			if (relation == null) {
+				throw new IllegalArgumentException("Table " + schema.getTableName() + " has no relation " + name);
+			}
+			relation.load(rows);
+		}
+		return rows;
+	}
+
+	/**
+	 * Counts the matching rows without loading them.
+	 * 
+	 * @param klaas the table.
+	 * @param where the WHERE clause without "WHERE" and with <code>?</code> placeholders. <code>null</code> counts
+	 *            all rows.
+	 * @param args the values for the placeholders.
+	 * @return the number of matching rows.
+	 * @see Query#count()
+	 */
+	public static int count(final Class<? extends Table> klaas, final String where, final Object... args) {
+		return query(klaas, where, args).count();
+	}
+
+	/**
+	 * @return <code>true</code>, when at least one row matches, see {@link #count(Class, String, Object...)}.
+	 */
+	public static boolean exists(final Class<? extends Table> klaas, final String where, final Object... args) {
+		return query(klaas, where, args).exists();
+	}
+
+	/**
+	 * @return the sum of column over the matching rows, see {@link Query#sum(String)}.
+	 */
+	public static double sum(final Class<? extends Table> klaas, final String column, final String where,
+			final Object... args) {
+		return query(klaas, where, args).sum(column);
+	}
+
+	/**
+	 * @return the average of column over the matching rows, see {@link Query#avg(String)}.
+	 */
+	public static Double avg(final Class<? extends Table> klaas, final String column, final String where,
+			final Object... args) {
+		return query(klaas, where, args).avg(column);
+	}
+
+	/**
+	 * @return the minimum of column over the matching rows, see {@link Query#min(String)}.
+	 */
+	public static Double min(final Class<? extends Table> klaas, final String column, final String where,
+			final Object... args) {
+		return query(klaas, where, args).min(column);
+	}
+
+	/**
+	 * @return the maximum of column over the matching rows, see {@link Query#max(String)}.
+	 */
+	public static Double max(final Class<? extends Table> klaas, final String column, final String where,
+			final Object... args) {
+		return query(klaas, where, args).max(column);
+	}
+
+	/**
+	 * @return the aggregate of the matching rows per value of column, see {@link Query#groupBy(String, String)}.
+	 */
+	public static Map<String, Double> groupBy(final Class<? extends Table> klaas, final String column,
+			final String aggregate, final String where, final Object... args) {
+		return query(klaas, where, args).groupBy(column, aggregate);
+	}
+
+	/**
+	 * Searches the full-text columns of klaas, see {@link Search}.
+	 * 
+	 * @param klaas the table with at least one full-text column.
+	 * @param match the FTS query, e.g. <code>"milk OR bread*"</code>.
+	 * @return the matching rows, the best ones first.
+	 */
+	public static <T extends Table> List<T> search(final Class<T> klaas, final String match) {
+		return Search.from(klaas, match).list();
+	}
+
+	private static Query<? extends Table> query(final Class<? extends Table> klaas, final String where,
+			final Object... args) {
+		Query<? extends Table> query = Query.from(klaas);
+		if (where != null) {
+			query.where(where, args);
+		}
+		return query;
+	}
+
+	/**
+	 * Streams all rows matching the selection. Rows will be hydrated lazily while iterating, so memory usage doesn't
+	 * depend on the number of rows. Don't forget to {@link CloseableIterator#close()} it, when you stop early.
+	 * 
+	 * @param klaas Class to instantiate T.
+	 * @param selection the WHERE clause without "WHERE" and with <code>?</code> placeholders. <code>null</code>
+	 *            selects all rows.
+	 * @param selectionArgs the values for the placeholders.
+	 * @return the streaming iterator.
+	 */
+	public static <T extends Table> TableIterator<T> stream(final Class<T> klaas, final String selection,
+			final String[] selectionArgs) {
+		return stream(klaas, selection, selectionArgs, false);
+	}
+
+	/**
+	 * See {@link #stream(Class, String, String[])}.
+	 * 
+	 * @param reuseInstance <code>true</code>, when all rows should be filled into one and the same instance. Use this
+	 *            for read-only scans, which don't keep references to the rows.
+	 */
+	public static <T extends Table> TableIterator<T> stream(final Class<T> klaas, final String selection,
+			final String[] selectionArgs, final boolean reuseInstance) {
+		String sql = selectSql(getTableName(klaas), TableSchema.of(klaas).getEagerColumnNames(), selection);
+		return new TableIterator<T>(klaas, rawQuery(getTableName(klaas), sql, selectionArgs), reuseInstance);
+	}
+
+	/**
+	 * Find a specific row in the table by it's primary key and fills this object. So, _id has to be set before you call
+	 * this.
+	 * 
+	 * @return <code>true</code>, when a single row was found and filled in this object.
+	 */
+	public boolean find() {
+		return find(_id);
+	}
+
+	/**
+	 * Finds a row by its primary key and fills all columns, except the {@link Column#lazy() lazy} ones, into this
+	 * object.
+	 * 
+	 * @return <code>true</code>, when a single row was found and filled in this object.
+	 */
+	public boolean find(final Long id) {
+		return find(id, getSchema().getEagerColumnNames(), Table.cache);
+	}
+
+	/**
+	 * Finds a row by its primary key, but fills only the given columns (and the primary key) into this object. The
+	 * other columns can be loaded with {@link #fetch(String)}. The {@link EntityCache} won't be used.
+	 * 
+	 * @param columns the columns to select.
+	 * @return <code>true</code>, when a single row was found and filled in this object.
+	 */
+	public boolean find(final Long id, final String... columns) {
+		return find(id, getSchema().projection(columns), null);
+	}
+
+	private boolean find(final Long id, final String[] columns, final EntityCache cache) {
+		try {
+			if (id == null || id < 1L) {
+				Log.e(TAG, "Could not load an primary key < 1!");
+				return false;
+			}
+			if (cache != null && cache.fill(this, id)) {
+				return true;
+			}
+			long generation = cache == null ? 0L : cache.getGeneration();
+			long start = startTimer();
+			String sql = selectSql(getTableName(), columns, BY_ID);
+			boolean found = fillFirstAndClose(getReadableDb().rawQuery(sql, new String[] { String.valueOf(id) }), sql);
+			if (start != 0L) {
+				notifyListeners(Operation.FIND, getTableName(), sql, start, found ? 1 : 0, 0L);
+			}
+			if (found && cache != null) {
+				cache.put(this, generation);
+			}
+			return found;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Create a new row in the table and insert all values from this object. In most cases you want to call
+	 * {@link #save()} instead...
+	 * 
+	 * @return <code>true</code> when we could save it successfully in the db.
+	 */
+	public boolean insert() {
+		createIfNecessary();
+
+		DatabaseContext context = getDbContext();
+		TableSchema schema = getSchema();
+		long start = startTimer();
+		boolean inserted = false;
+		context.lockWriter();
+		try {
+			SQLiteStatement statement = context.getStatements().get(schema.getInsertSql());
+			long id;
+			synchronized (statement) {
+				for (ColumnDescriptor column : schema.getColumns()) {
+					schema.bind(this, column, statement, column.getPosition() + 1);
+				}
+				id = statement.executeInsert();
+			}
+			if (_id != null) {
+				takeSnapshot();
+				unloaded = null;
+				invalidate(getTableName(), _id);
+				inserted = true;
+			} else if (id >= 0L) {
+				_id = id;
+				takeSnapshot();
+				unloaded = null;
+				inserted = true;
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			context.unlockWriter();
+			if (start != 0L) {
+				notifyListeners(Operation.INSERT, getTableName(), schema.getInsertSql(), start, inserted ? 1 : 0,
+					sizeOf(schema.getColumns()));
+			}
+		}
+		return inserted;
+	}
+
+	/**
+	 * Delete this object from the db. Though, _id has to be set to find the wanted row.
+	 * 
+	 * @return <code>true</code> when deletion was successful.
+	 */
+	public boolean delete() {
+		if (_id == null) {
+			return false;
+		}
+		DatabaseContext context = getDbContext();
+		long start = startTimer();
+		int deleted = 0;
+		context.lockWriter();
+		try {
+			deleted = context.getWriter().delete(getTableName(), BY_ID, new String[] { String.valueOf(_id) });
+			invalidate(getTableName(), _id);
+			invalidateDependents(getTableName());
+			return deleted > 0;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			context.unlockWriter();
+			if (start != 0L) {
+				notifyListeners(Operation.DELETE, getTableName(), "DELETE FROM " + getTableName() + " WHERE " + BY_ID,
+					start, deleted, 8L);
+			}
+		}
+	}
+
+	public boolean delete(final String whereClause) {
+		return delete(getTableName(), whereClause);
+	}
+
+	public static boolean delete(final String tableName, final String whereClause) {
+		return delete(tableName, whereClause, new Object[0]);
+	}
+
+	/**
+	 * Deletes all rows of the table matching whereClause.
+	 * 
+	 * @param tableName the table.
+	 * @param whereClause the WHERE clause without "WHERE" and with <code>?</code> placeholders.
+	 * @param whereArgs the values for the placeholders.
+	 * @return <code>true</code>, when at least one row was deleted.
+	 */
+	public static boolean delete(final String tableName, final String whereClause, final Object... whereArgs) {
+		return deleteRows(tableName, whereClause, whereArgs) > 0;
+	}
+
+	/**
+	 * Deletes the row with the given id, see {@link #deleteById(Class, long)}.
+	 * 
+	 * @return <code>true</code>, when the row was deleted.
+	 */
+	public static <T extends Table> boolean delete(final Class<T> klaas, final long id) {
+		return deleteById(klaas, id) > 0;
+	}
+
+	/**
+	 * Deletes the row with the given id with a single compiled DELETE. The row won't be loaded before.
+	 * 
+	 * @param klaas the table.
+	 * @param id the primary key.
+	 * @return the number of deleted rows, 0 or 1.
+	 */
+	public static int deleteById(final Class<? extends Table> klaas, final long id) {
+		return deleteByIds(klaas, id);
+	}
+
+	/**
+	 * Deletes all rows with the given ids in one transaction. The ids are deleted in chunks of
+	 * {@link #MAX_BIND_ARGS}, so there's no limit for the number of ids.
+	 * 
+	 * @param klaas the table.
+	 * @param ids the primary keys.
+	 * @return the number of deleted rows.
+	 */
+	public static int deleteByIds(final Class<? extends Table> klaas, final long... ids) {
+		if (ids.length == 0) {
+			return 0;
+		}
+		ensureSchema(klaas);
+		String tableName = getTableName(klaas);
+		DatabaseContext context = getDbContext();
+		SQLiteDatabase db = context.getWriter();
+		long start = startTimer();
+		int deleted = 0;
+		context.lockWriter();
+		db.beginTransaction();
+		try {
+			StatementCache statements = context.getStatements();
+			SQLiteStatement changes = statements.get(SQL_CHANGES);
+			for (int offset = 0; offset < ids.length; offset += MAX_BIND_ARGS) {
+				int count = Math.min(MAX_BIND_ARGS, ids.length - offset);
+				SQLiteStatement statement = statements.get(buildDeleteByIdsSql(tableName, count));
+				for (int i = 0; i < count; i++) {
+					statement.bindLong(i + 1, ids[offset + i]);
+				}
+				statement.execute();
+				deleted += (int) changes.simpleQueryForLong();
+			}
+			db.setTransactionSuccessful();
+			for (long id : ids) {
+				invalidate(tableName, id);
+			}
+			invalidateDependents(tableName);
+			return deleted;
+		} finally {
+			db.endTransaction();
+			context.unlockWriter();
+			if (start != 0L) {
+				notifyListeners(Operation.DELETE, tableName, buildDeleteByIdsSql(tableName, Math.min(ids.length,
+					MAX_BIND_ARGS)), start, deleted, 8L * ids.length);
+			}
+		}
+	}
+
+	private static String buildDeleteByIdsSql(final String tableName, final int count) {
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(tableName).append(" WHERE ");
+		if (count == 1) {
+			return sql.append(BY_ID).toString();
+		}
+		sql.append(PRIMARY_KEY).append(" IN (?");
+		for (int i = 1; i < count; i++) {
+			sql.append(",?");
+		}
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * Deletes all rows of the table matching whereClause.
+	 * 
+	 * @param klaas the table.
+	 * @param whereClause the WHERE clause without "WHERE" and with <code>?</code> placeholders. <code>null</code>
+	 *            deletes all rows.
+	 * @param whereArgs the values for the placeholders.
+	 * @return the number of deleted rows.
+	 */
+	public static int deleteWhere(final Class<? extends Table> klaas, final String whereClause,
+			final Object... whereArgs) {
+		ensureSchema(klaas);
+		return deleteRows(getTableName(klaas), whereClause, whereArgs);
+	}
+
+	private static int deleteRows(final String tableName, final String whereClause, final Object... whereArgs) {
+		List<String> argList = new ArrayList<String>(whereArgs.length);
+		//a null whereClause would delete all rows without counting them.
+		String where = whereClause == null ? "1" : TypeMapper.inlineBlobs(whereClause, whereArgs, argList);
+		String[] args = argList.toArray(new String[argList.size()]);
+		DatabaseContext context = getDbContext();
+		long start = startTimer();
+		int deleted = 0;
+		context.lockWriter();
+		try {
+			deleted = context.getWriter().delete(tableName, where, args);
+			invalidateAll(tableName);
+			invalidateDependents(tableName);
+			return deleted;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			context.unlockWriter();
+			if (start != 0L) {
+				notifyListeners(Operation.DELETE, tableName, "DELETE FROM " + tableName + " WHERE " + where, start,
+					deleted, sizeOf(args));
+			}
+		}
+	}
+
+	/**
+	 * Update all values from this object in the db. Though, _id has to be set. Normally, when you call
+	 * {@link #update()}, you won't set this yourself. We would suggest to retrieve it via {@link #find()} and than
+	 * change the values you want.<br/>
+	 * Only the columns changed since this object was loaded or written will be updated (see
+	 * {@link #getDirtyColumns()}). When nothing changed, no statement will be executed at all.
+	 * 
+	 * @return <code>true</code>, when updating was successful.
+	 */
+	public boolean update() {
+		if (_id == null) {
+			return false;
+		}
+
+		DatabaseContext context = getDbContext();
+		context.lockWriter();
+		try {
+			TableSchema schema = getSchema();
+			List<ColumnDescriptor> dirty = getDirty();
+			if (dirty.isEmpty()) {
+				return true;
+			}
+			String sql = snapshot == null ? schema.getUpdateSql() : schema.getUpdateSql(dirty);
+			long start = startTimer();
+			try {
+				SQLiteStatement statement = context.getStatements().get(sql);
+				synchronized (statement) {
+					int index = 1;
+					for (ColumnDescriptor column : dirty) {
+						schema.bind(this, column, statement, index++);
+					}
+					statement.bindLong(index, _id);
+					statement.execute();
+				}
+			} finally {
+				if (start != 0L) {
+					notifyListeners(Operation.UPDATE, getTableName(), sql, start, 1, sizeOf(dirty));
+				}
+			}
+			takeSnapshot();
+			invalidate(getTableName(), _id);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			context.unlockWriter();
+		}
+		return true;
+	}
+
+	private StringBuilder fieldsToUpdateSql(final StringBuilder updateValues) {
+		for (ColumnDescriptor column : getSchema().getColumns()) {
+			if (!column.isPrimaryKey()) {
+				updateValues.append(column.getName());
+				updateValues.append(EQUAL);
+				updateValues.append(getEscapedValueQuotedIfNeeded(column));
+				updateValues.append(DELIMITER);
+				updateValues.append(SPACE);
+			}
+		}
+		return updateValues;
+	}
+
+	/**
+	 * {@link #insert()} or {@link #update()}.
+	 * 
+	 * @return <code>true</code> when operation was successful.
+	 */
+	public boolean save() {
+		if (isNew()) {
+			return insert();
+		}
+		return update();
+	}
+
+	/**
+	 * {@link #insert()} all tables. They will be written in transactions of {@link #getChunkSize()} rows, so it's way
+	 * faster than inserting them one by one. The generated ids will be set on each table.
+	 * 
+	 * @param tables the tables to insert.
+	 * @return the number of successfully inserted rows.
+	 */
+	public static int insertAll(final Collection<? extends Table> tables) {
+		return insertAll(tables, chunkSize);
+	}
+
+	/**
+	 * See {@link #insertAll(Collection)}.
+	 * 
+	 * @param chunkSize number of rows per transaction.
+	 */
+	public static int insertAll(final Collection<? extends Table> tables, final int chunkSize) {
+		return writeAll(tables, chunkSize, WriteMode.INSERT);
+	}
+
+	/**
+	 * {@link #update()} all tables in transactions of {@link #getChunkSize()} rows.
+	 * 
+	 * @param tables the tables to update.
+	 * @return the number of successfully updated rows.
+	 */
+	public static int updateAll(final Collection<? extends Table> tables) {
+		return updateAll(tables, chunkSize);
+	}
+
+	/**
+	 * See {@link #updateAll(Collection)}.
+	 * 
+	 * @param chunkSize number of rows per transaction.
+	 */
+	public static int updateAll(final Collection<? extends Table> tables, final int chunkSize) {
+		return writeAll(tables, chunkSize, WriteMode.UPDATE);
+	}
+
+	/**
+	 * {@link #save()} all tables in transactions of {@link #getChunkSize()} rows.
+	 * 
+	 * @param tables the tables to save.
+	 * @return the number of successfully saved rows.
+	 */
+	public static int saveAll(final Collection<? extends Table> tables) {
+		return saveAll(tables, chunkSize);
+	}
+
+	/**
+	 * See {@link #saveAll(Collection)}.
+	 * 
+	 * @param chunkSize number of rows per transaction.
+	 */
+	public static int saveAll(final Collection<? extends Table> tables, final int chunkSize) {
+		return writeAll(tables, chunkSize, WriteMode.SAVE);
+	}
+
+	/**
+	 * Writes all tables in transactions of chunkSize rows. When a row fails, the current chunk will be rolled back
+	 * and the exception is thrown. All chunks before are already committed. The rows of the rolled back chunk get
+	 * their previous {@link State}, so inserted ones are new again.
+	 */
+	private static int writeAll(final Collection<? extends Table> tables, final int chunkSize,
+			final WriteMode mode) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size has to be >= 1, but was " + chunkSize);
+		}
+		int written = 0;
+		int inChunk = 0;
+		int writtenInChunk = 0;
+		List<State> chunk = new ArrayList<State>(Math.min(chunkSize, tables.size()));
+		boolean committed = false;
+		DatabaseContext context = getDbContext();
+		SQLiteDatabase db = context.getWriter();
+		context.lockWriter();
+		db.beginTransaction();
+		try {
+			for (Table table : tables) {
+				chunk.add(new State(table));
+				boolean success;
+				switch (mode) {
+				case INSERT:
+					success = table.insert();
+					break;
+				case UPDATE:
+					success = table.update();
+					break;
+				default:
+					success = table.save();
+				}
+				if (success) {
+					writtenInChunk++;
+				}
+				if (++inChunk == chunkSize) {
+					db.setTransactionSuccessful();
+					db.endTransaction();
+					written += writtenInChunk;
+					inChunk = 0;
+					writtenInChunk = 0;
+					chunk.clear();
+					db.beginTransaction();
+				}
+			}
+			db.setTransactionSuccessful();
+			written += writtenInChunk;
+			committed = true;
+		} finally {
+			db.endTransaction();
+			context.unlockWriter();
+			if (!committed) {
+				for (State state : chunk) {
+					state.restore();
+				}
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Queues {@link #save()} on the {@link WriteBehindQueue}. It will be committed together with other queued writes
+	 * in one transaction, so it's much faster than many single {@link #save()} calls.
+	 * 
+	 * @return the result of {@link #save()}, available after the commit.
+	 * @throws RejectedExecutionException when the queue is full.
+	 */
+	public Future<Boolean> saveAsync() {
+		return getWriteQueue().submit(new Callable<Boolean>() {
+			public Boolean call() {
+				return save();
+			}
+		}, Collections.singletonList(this));
+	}
+
+	/**
+	 * Queues {@link #delete()} on the {@link WriteBehindQueue}, see {@link #saveAsync()}.
+	 * 
+	 * @return the result of {@link #delete()}, available after the commit.
+	 * @throws RejectedExecutionException when the queue is full.
+	 */
+	public Future<Boolean> deleteAsync() {
+		return getWriteQueue().submit(new Callable<Boolean>() {
+			public Boolean call() {
+				return delete();
+			}
+		}, Collections.singletonList(this));
+	}
+
+	/**
+	 * Queues {@link #insert()} of all tables as one operation on the {@link WriteBehindQueue}, see
+	 * {@link #saveAsync()}. When a row fails, the rows before will be committed anyway, as long as the rest of the
+	 * batch commits.
+	 * 
+	 * @param tables the tables to insert. Don't change the collection until the future is done.
+	 * @return the number of successfully inserted rows, available after the commit.
+	 * @throws RejectedExecutionException when the queue is full.
+	 */
+	public static Future<Integer> insertAllAsync(final Collection<? extends Table> tables) {
+		return getWriteQueue().submit(new Callable<Integer>() {
+			public Integer call() {
+				int inserted = 0;
+				for (Table table : tables) {
+					if (table.insert()) {
+						inserted++;
+					}
+				}
+				return inserted;
+			}
+		}, tables);
+	}
+
+	/**
+	 * @return the queue for the asynchronous writes. A default {@link WriteBehindQueue} will be started on first use.
+	 */
+	public static synchronized WriteBehindQueue getWriteQueue() {
+		if (writeQueue == null) {
+			writeQueue = new WriteBehindQueue();
+		}
+		return writeQueue;
+	}
+
+	/**
+	 * Replaces the queue for the asynchronous writes, e.g. to change its batch size or capacity. The current queue
+	 * will be closed after committing its pending writes.
+	 * 
+	 * @param queue the new queue, may be <code>null</code> for a default one.
+	 */
+	public static synchronized void setWriteQueue(final WriteBehindQueue queue) {
+		if (writeQueue != null) {
+			writeQueue.close();
+		}
+		writeQueue = queue;
+	}
+
+	/**
+	 * @return number of rows per transaction for {@link #insertAll}, {@link #updateAll} and {@link #saveAll}.
+	 */
+	public static int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @param chunkSize number of rows per transaction for {@link #insertAll}, {@link #updateAll} and {@link #saveAll}.
+	 */
+	public static void setChunkSize(final int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size has to be >= 1, but was " + chunkSize);
+		}
+		Table.chunkSize = chunkSize;
+	}
+
+	/**
+	 * DROP TABLE IF EXISTS, forget it in the {@link DatabaseContext} and delete it from {@link Metadata}.
+	 */
+	public void drop() {
+		DatabaseContext context = getDbContext();
+		execSQL("DROP TABLE IF EXISTS " + getTableName());
+		if (!getSchema().getFullTextColumns().isEmpty()) {
+			execSQL("DROP TABLE IF EXISTS " + getSchema().getFullTextTableName());
+		}
+		context.setCreated(getTableName(), false);
+		context.setChecked(getTableName(), false);
+		invalidateAll(getTableName());
+		invalidateDependents(getTableName());
+		Metadata metadata = new Metadata();
+		if (metadata.findByName(getTableName())) {
+			metadata.delete();
+		}
+	}
+
+	/**
+	 * Retrieves all columns, which were changed since this object was loaded, inserted or updated the last time.
+	 * {@link #update()} will only write these columns.
+	 * 
+	 * @return the names of all changed columns without the {@link #PRIMARY_KEY}. All columns, when this object was
+	 *         never loaded or written.
+	 */
+	public List<String> getDirtyColumns() {
+		List<String> names = new ArrayList<String>();
+		for (ColumnDescriptor column : getDirty()) {
+			names.add(column.getName());
+		}
+		return names;
+	}
+
+	private List<ColumnDescriptor> getDirty() {
+		List<ColumnDescriptor> dirty = new ArrayList<ColumnDescriptor>();
+		for (ColumnDescriptor column : getSchema().getColumns()) {
+			if (!column.isPrimaryKey()
+					&& (snapshot == null || !valueEquals(snapshot[column.getPosition()], toDb(column)))) {
+				dirty.add(column);
+			}
+		}
+		return dirty;
+	}
+
+	/**
+	 * The persistence state of a row: its primary key and what it knows about its values in the db. Capture it before
+	 * writing the row within a transaction and restore it, when the transaction was rolled back. Otherwise an
+	 * inserted row would keep its new primary key and look persisted.
+	 */
+	static final class State {
+
+		private final Table table;
+
+		private final Long id;
+
+		private final Object[] snapshot;
+
+		private final boolean[] unloaded;
+
+		State(final Table table) {
+			this.table = table;
+			this.id = table._id;
+			this.snapshot = table.snapshot == null ? null : table.snapshot.clone();
+			this.unloaded = table.unloaded == null ? null : table.unloaded.clone();
+		}
+
+		void restore() {
+			if (table._id != null) {
+				invalidate(table.getTableName(), table._id);
+			}
+			table._id = id;
+			table.snapshot = snapshot;
+			table.unloaded = unloaded;
+		}
 	}
 
 	/**
-	 * Find a specific row in the table by it's primary key and fills this object. So, _id has to be set before you call
-	 * this.
-	 * 
-	 * @return <code>true</code>, when a single row was found and filled in this object.
+	 * Remembers the current column values to detect changes, see {@link #getDirtyColumns()}. It keeps the values as
+	 * they are stored, so a mutable value like a {@link java.util.Date} changed in place is detected as well.
 	 */
-	public boolean find() {
-		return find(_id);
+	void takeSnapshot() {
+		List<ColumnDescriptor> columns = getSchema().getColumns();
+		Object[] values = new Object[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = snapshotOf(columns.get(i));
+		}
+		snapshot = values;
 	}
 
-	public boolean find(final Long id) {
-		try {
-			if (id == null || id < 1L) {
-				Log.e(TAG, "Could not load an primary key < 1!");
-				return false;
-			}
-			Cursor cursor = db.query(getTableName(), getColumnNames(), PRIMARY_KEY + EQUAL + id,
-				null, null, null, null);
-			return fillFirstAndClose(cursor);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+	private Object snapshotOf(final ColumnDescriptor column) {
+		Object value = toDb(column);
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
 	}
 
 	/**
-	 * Create a new row in the table and insert all values from this object. In most cases you want to call
-	 * {@link #save()} instead...
+	 * @return the value of the column converted by its {@link TypeConverter}, the plain value without one.
+	 */
+	private Object toDb(final ColumnDescriptor column) {
+		Object value = column.get(this);
+		TypeConverter<Object> converter = column.getConverter();
+		return value == null || converter == null ? value : converter.toDb(value);
+	}
+
+	/**
+	 * Loads a column, which wasn't selected when this row was loaded: either a {@link Column#lazy() lazy} one or one
+	 * left out by a projection like {@link #all(Class, String...)}. Call it in the getter of a lazy column:
 	 * 
-	 * @return <code>true</code> when we could save it successfully in the db.
+	 * <pre>
+	 * public String getBody() {
+	 * 	fetch(&quot;body&quot;);
+	 * 	return body;
+	 * }
+	 * </pre>
+	 * 
+	 * It won't do anything, when the column was already loaded, the field was changed since loading or this row isn't
+	 * stored yet.
+	 * 
+	 * @param columnName the column to load.
 	 */
-	public boolean insert() {
-		createIfNecessary();
-		StringBuilder columns = new StringBuilder();
-		StringBuilder values = new StringBuilder();
+	public void fetch(final String columnName) {
+		TableSchema schema = getSchema();
+		ColumnDescriptor column = schema.getColumn(columnName);
+		if (column == null) {
+			throw new IllegalArgumentException("Table " + getTableName() + " has no column " + columnName);
+		}
+		if (isLoaded(column)) {
+			return;
+		}
+		int position = column.getPosition();
+		unloaded[position] = false;
+		if (isNew() || snapshot == null || !valueEquals(snapshot[position], toDb(column))) {
+			return;
+		}
 
+		long start = startTimer();
+		String sql = "SELECT " + columnName + " FROM " + getTableName() + " WHERE " + BY_ID;
+		boolean found = false;
+		Cursor c = getReadableDb().rawQuery(sql, new String[] { String.valueOf(_id) });
 		try {
-			for (Field field : getFields()) {
-				if (ColumnHelper.isColumn(field)) {
-					columns.append(SPACE).append(field.getName()).append(DELIMITER);
-					values.append(SPACE).append(getEscapedValueQuotedIfNeeded(field))
-					.append(DELIMITER);
-				}
-			}
-			trimLastDelimiter(columns);
-			trimLastDelimiter(values);
-			String sql = String.format(SQL_INSERT, getTableName(), columns, values);
-			Log.i(TAG, "Execute insert: " + sql);
-			SQLiteStatement statement = db.compileStatement(sql);
-			Long id = statement.executeInsert();
-			statement.close();
-			if (_id != null) {
-				return true;
+			if (c.moveToFirst()) {
+				schema.read(this, column, c, 0);
+				snapshot[position] = snapshotOf(column);
+				found = true;
 			}
-			if (id >= 0L) {
-				_id = id;
-				return true;
+		} finally {
+			c.close();
+			if (start != 0L) {
+				notifyListeners(Operation.FIND, getTableName(), sql, start, found ? 1 : 0, 0L);
 			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
 		}
-		return false;
 	}
 
 	/**
-	 * Delete this object from the db. Though, _id has to be set to find the wanted row.
-	 * 
-	 * @return <code>true</code> when deletion was successful.
+	 * @param columnName a column of this table.
+	 * @return <code>false</code>, when the column wasn't loaded with this row and not fetched yet, see
+	 *         {@link #fetch(String)}.
 	 */
-	public boolean delete() {
-		if (_id == null) {
-			return false;
+	public boolean isLoaded(final String columnName) {
+		ColumnDescriptor column = getSchema().getColumn(columnName);
+		if (column == null) {
+			throw new IllegalArgumentException("Table " + getTableName() + " has no column " + columnName);
 		}
-		return delete(PRIMARY_KEY + EQUAL + _id);
+		return isLoaded(column);
 	}
 
-	public boolean delete(final String whereClause) {
-		return delete(getTableName(), whereClause);
+	boolean isLoaded(final ColumnDescriptor column) {
+		return unloaded == null || !unloaded[column.getPosition()];
 	}
 
-	public static boolean delete(final String tableName, final String whereClause) {
-		try {
-			return db.delete(tableName, whereClause, null) > 0;
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+	/**
+	 * @param unloaded the positions of the columns, which weren't loaded. <code>null</code>, when all were.
+	 */
+	void setUnloaded(final boolean[] unloaded) {
+		this.unloaded = unloaded;
 	}
 
-	public static <T extends Table> boolean delete(final Class<T> klaas, final long id) {
-		T table = ReflectionHelper.createInstance(klaas);
-		return table.find(id) && table.delete();
+	private static boolean valueEquals(final Object a, final Object b) {
+		if (a instanceof byte[] && b instanceof byte[]) {
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		}
+		return a == null ? b == null : a.equals(b);
 	}
 
 	/**
-	 * Update all values from this object in the db. Though, _id has to be set. Normally, when you call
-	 * {@link #update()}, you won't set this yourself. We would suggest to retrieve it via {@link #find()} and than
-	 * change the values you want.
+	 * Enables the {@link EntityCache} for {@link #find(Long)} and {@link #find(Class, long)}. An already enabled cache
+	 * will be replaced.
 	 * 
-	 * @return <code>true</code>, when updating was successful.
+	 * @param maxSize maximal number of cached rows over all tables.
 	 */
-	public boolean update() {
-		StringBuilder updateValues = new StringBuilder();
+	public static void enableCache(final int maxSize) {
+		cache = new EntityCache(maxSize);
+	}
 
-		try {
-			if (_id == null) {
-				return false;
-			}
+	public static void disableCache() {
+		cache = null;
+	}
 
-			fieldsToUpdateSql(updateValues);
-			trimLastDelimiter(updateValues);
-			execSQL(String.format(SQL_UPDATE, getTableName(), updateValues, _id));
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+	/**
+	 * @return the current cache, e.g. to read its statistics. <code>null</code>, when it's disabled.
+	 */
+	public static EntityCache getCache() {
+		return cache;
+	}
+
+	private static void invalidate(final String tableName, final long id) {
+		final EntityCache cache = Table.cache;
+		if (cache != null) {
+			cache.remove(tableName, id);
+			repeatAfterCommit(new Runnable() {
+				public void run() {
+					cache.remove(tableName, id);
+				}
+			});
 		}
-		return true;
 	}
 
-	private StringBuilder fieldsToUpdateSql(final StringBuilder updateValues)
-			throws IllegalAccessException {
-		for (Field field : getFields()) {
-			if (ColumnHelper.isColumn(field) && !isPrimaryKey(field)) {
-				updateValues.append(field.getName());
-				updateValues.append(EQUAL);
-				updateValues.append(getEscapedValueQuotedIfNeeded(field));
-				updateValues.append(DELIMITER);
-				updateValues.append(SPACE);
-			}
+	static void invalidateAll(final String tableName) {
+		EntityCache cache = Table.cache;
+		if (cache != null) {
+			invalidateAll(cache, tableName);
 		}
-		return updateValues;
+	}
+
+	private static void invalidateAll(final EntityCache cache, final String tableName) {
+		cache.removeAll(tableName);
+		repeatAfterCommit(new Runnable() {
+			public void run() {
+				cache.removeAll(tableName);
+			}
+		});
 	}
 
 	/**
-	 * {@link #insert()} or {@link #update()}.
-	 * 
-	 * @return <code>true</code> when operation was successful.
+	 * A write within a transaction invalidates the cache before it commits. Until then, another thread still reads
+	 * the old row from a reader connection and could cache it again. So the invalidation gets repeated, when the
+	 * writer lock is released, which is after the commit.
 	 */
-	public boolean save() {
-		if (isNew()) {
-			return insert();
+	private static void repeatAfterCommit(final Runnable invalidation) {
+		DatabaseContext context = dbContext;
+		if (context != null && context.isWriterLockedByCurrentThread()) {
+			context.runOnUnlock(invalidation);
 		}
-		return update();
 	}
 
 	/**
-	 * DROP TABLE IF EXISTS, delete from {@link #createdTables} and from {@link Metadata}.
+	 * Invalidates all tables, whose rows might have been deleted or changed by foreign key actions.
 	 */
-	public void drop() {
-		execSQL("DROP TABLE IF EXISTS " + getTableName());
-		createdTables.remove(getTableName());
-		Metadata metadata = new Metadata();
-		if (metadata.findByName(getTableName())) {
-			metadata.delete();
+	private static void invalidateDependents(final String tableName) {
+		EntityCache cache = Table.cache;
+		if (cache != null) {
+			invalidateDependents(cache, tableName, new HashSet<String>());
+		}
+	}
+
+	private static void invalidateDependents(final EntityCache cache, final String tableName,
+			final Set<String> invalidated) {
+		for (String dependent : TableSchema.getDependentTables(tableName)) {
+			if (invalidated.add(dependent)) {
+				invalidateAll(cache, dependent);
+				invalidateDependents(cache, dependent, invalidated);
+			}
 		}
 	}
 
@@ -354,13 +1320,11 @@ public abstract class Table implements Serializable {
 	 * Get the quoted value, when it's a String. Otherwise, the retrieved object will returned as it is. It will allways
 	 * escape the value!
 	 * 
-	 * @param field you want to access.
+	 * @param column you want to access.
 	 * @return the quoted value, when it's a String. Otherwise, the retrieved object will returned as it is.
 	 */
-	private Object getEscapedValueQuotedIfNeeded(final Field field)
-			throws IllegalArgumentException, IllegalAccessException {
-		field.setAccessible(true);
-		Object value = field.get(this);
+	private Object getEscapedValueQuotedIfNeeded(final ColumnDescriptor column) {
+		Object value = column.get(this);
 		if (value == null) {
 			return null;
 		}
@@ -371,41 +1335,27 @@ public abstract class Table implements Serializable {
 		return value;
 	}
 
-	private boolean isPrimaryKey(final Field field) {
-		Column column = field.getAnnotation(Column.class);
-		return column != null && column.primaryKey();
-	}
-
-	/**
-	 * When sb has a {@link #DELIMITER}, all chars from there to end will be deleted.
-	 * 
-	 * @param sb the StringBuffer to trim
-	 * @return the trimmed sb.
-	 */
-	private StringBuilder trimLastDelimiter(final StringBuilder sb) {
-		if (sb.lastIndexOf(DELIMITER) >= 0) {
-			return sb.delete(sb.lastIndexOf(DELIMITER), sb.length());
-		}
-		return sb;
-	}
-
 	protected static List<String> getColumnNamesAsList(final Class<? extends Table> klaas) {
-		List<String> columns = new ArrayList<String>();
-		for (Field field : ReflectionHelper.getFields(klaas)) {
-			if (ColumnHelper.isColumn(field)) {
-				columns.add(field.getName());
-			}
-		}
-		return columns;
+		return new ArrayList<String>(Arrays.asList(getColumnNames(klaas)));
 	}
 
 	protected String[] getColumnNames() {
 		return getColumnNames(getClass());
 	}
 
+	/**
+	 * @return all column names of the given table. This array is shared, so don't modify it!
+	 * @see TableSchema#getColumnNames()
+	 */
 	protected static String[] getColumnNames(final Class<? extends Table> klaas) {
-		List<String> columns = getColumnNamesAsList(klaas);
-		return columns.toArray(new String[columns.size()]);
+		return TableSchema.of(klaas).getColumnNames();
+	}
+
+	/**
+	 * @return the cached {@link TableSchema} of this table.
+	 */
+	protected TableSchema getSchema() {
+		return TableSchema.of(getClass());
 	}
 
 	/**
@@ -429,8 +1379,56 @@ public abstract class Table implements Serializable {
 		return this;
 	}
 
+	/**
+	 * @return the writer connection or <code>null</code>, when no db was opened. Use {@link #getReadableDb()} for
+	 *         queries.
+	 */
 	public static SQLiteDatabase getDb() {
-		return db;
+		DatabaseContext context = dbContext;
+		return context == null ? null : context.getWriter();
+	}
+
+	/**
+	 * @return a connection for queries, see {@link DatabaseContext#getReader()}.
+	 */
+	public static SQLiteDatabase getReadableDb() {
+		return getDbContext().getReader();
+	}
+
+	/**
+	 * @return the connections of the current db.
+	 * @throws IllegalStateException when no db was opened.
+	 */
+	public static DatabaseContext getDbContext() {
+		DatabaseContext context = dbContext;
+		if (context == null) {
+			throw new IllegalStateException("There is no open db. Call openOrCreateDB() or setDb() first!");
+		}
+		return context;
+	}
+
+	/**
+	 * @return the compiled statements of the writer of the current db. They will be closed together with the db.
+	 */
+	static StatementCache getStatements() {
+		return getDbContext().getStatements();
+	}
+
+	/**
+	 * @return number of read-only connections opened by {@link #openOrCreateDB(Context)}.
+	 */
+	public static int getReaderCount() {
+		return readerCount;
+	}
+
+	/**
+	 * @param readerCount number of read-only connections opened by the next {@link #openOrCreateDB(Context)}.
+	 */
+	public static void setReaderCount(final int readerCount) {
+		if (readerCount < 0) {
+			throw new IllegalArgumentException("Reader count has to be >= 0, but was " + readerCount);
+		}
+		Table.readerCount = readerCount;
 	}
 
 	/**
@@ -440,32 +1438,75 @@ public abstract class Table implements Serializable {
 	 * @return <code>true</code>, when filling was successful.
 	 */
 	protected boolean fillFirstAndClose(final Cursor c) {
+		return fillFirstAndClose(c, null);
+	}
+
+	/**
+	 * Same as {@link #fillFirstAndClose(Cursor)}.
+	 * 
+	 * @param sql the query of the cursor for the {@link DbListener}s.
+	 */
+	boolean fillFirstAndClose(final Cursor c, final String sql) {
 		try {
 			if (!c.moveToFirst()) {
 				return false;
 			}
-			fill(c);
+			fill(c, sql);
 		} finally {
 			c.close();
 		}
 		return true;
 	}
 
+	/**
+	 * Executes a query returning a cursor. While somebody listens, the cursor reports the query to the
+	 * {@link DbListener}s, when it gets closed, see {@link QueryCursor}.
+	 * 
+	 * @param tableName the table for the listeners.
+	 * @param sql the SELECT with <code>?</code> placeholders.
+	 * @param args the values for the placeholders.
+	 * @return the cursor.
+	 */
+	static Cursor rawQuery(final String tableName, final String sql, final String[] args) {
+		long start = startTimer();
+		Cursor c = getReadableDb().rawQuery(sql, args);
+		return start == 0L ? c : new QueryCursor(c, tableName, sql, System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the SELECT of columns, like
+	 *         {@link SQLiteDatabase#query(String, String[], String, String[], String, String, String)} builds it for
+	 *         these arguments.
+	 */
+	static String selectSql(final String tableName, final String[] columns, final String where) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(" FROM ").append(tableName);
+		if (where != null) {
+			sql.append(" WHERE ").append(where);
+		}
+		return sql.toString();
+	}
+
 	public boolean fill(final Cursor c) {
+		return fill(c, null);
+	}
+
+	private boolean fill(final Cursor c, final String sql) {
 		if (c.isAfterLast() || c.isBeforeFirst() && !c.moveToFirst()) {
 			return false;
 		}
 
-		try {
-			for (Field field : getFields()) {
-				if (c.getColumnIndex(field.getName()) >= 0) {
-					setTypedValue(c, field);
-				}
-			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+		long start = startTimer();
+		new RowMapper<Table>(getSchema().getTableClass(), c).fill(this, c);
+		if (start != 0L) {
+			notifyListeners(Operation.FILL, getTableName(), sql, start, 1, 0L);
 		}
-
 		return true;
 	}
 
@@ -479,117 +1520,124 @@ public abstract class Table implements Serializable {
 	 *         method.
 	 */
 	public static <T extends Table> List<T> fillAll(final Class<T> klaas, final Cursor c) {
+		return fillAll(klaas, c, null);
+	}
+
+	/**
+	 * Same as {@link #fillAll(Class, Cursor)}.
+	 * 
+	 * @param sql the query of the cursor for the {@link DbListener}s.
+	 */
+	static <T extends Table> List<T> fillAll(final Class<T> klaas, final Cursor c, final String sql) {
+		long start = startTimer();
+		ArrayList<T> list = null;
 		try {
-			ArrayList<T> list = new ArrayList<T>();
-			Constructor<T> constructor = ReflectionHelper.getConstructor(klaas);
+			list = new ArrayList<T>(Math.max(c.getCount(), 0));
+			RowMapper<T> mapper = new RowMapper<T>(klaas, c);
 
 			while (c.moveToNext()) {
-				T table = constructor.newInstance();
-				if (table.fill(c)) {
-					list.add(table);
-				} else {
-					Log.w(TAG, "Could not fill table " + klaas + " with cursor " + c);
-				}
+				list.add(mapper.map(c));
 			}
 			return list;
-		} catch (Exception e) {
-			throw new RuntimeException("This should not happen. Could not instantiate claas "
-					+ klaas, e);
 		} finally {
 			c.close();
+			if (start != 0L) {
+				notifyListeners(Operation.FILL, getTableName(klaas), sql, start, list == null ? 0 : list.size(), 0L);
+			}
 		}
 	}
 
 	public static <T extends Table> T find(final Class<T> klaas, final long id) {
-		T table = ReflectionHelper.createInstance(klaas);
+		T table = newInstance(klaas);
 		table.find(id);
 		return table;
 	}
 
 	/**
-	 * Create this table and all indices, when we can't remember to have this done yet (see {@link #createdTables}.
-	 * Afterwards, this table will be added to {@link #createdTables}
-	 * 
-	 * @return <code>true</code>, when it was already created, or it the {@link #SQL_CREATE_TABLE} execution was
-	 *         successful.
+	 * Creates a new, empty instance of klaas. Uses the generated {@link TableBinder}, when available.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Table> T newInstance(final Class<T> klaas) {
+		TableBinder<Table> binder = TableSchema.of(klaas).getBinder();
+		if (binder != null) {
+			return (T) binder.newInstance();
+		}
+		return ReflectionHelper.createInstance(klaas);
+	}
+
+	/**
+	 * Create this table and all indices, when we can't remember to have this done yet (see
+	 * {@link DatabaseContext#isCreated(String)}). Afterwards, it will be marked as created in the
+	 * {@link DatabaseContext}. Indices and the full-text table are only created together with the table: an existing
+	 * table might still miss their columns, until {@link #onUpgrade(int, int)} adds them.
 	 */
 	private void createIfNecessary() {
-		StringBuilder sqlColumns = new StringBuilder();
 		String name = getTableName();
+		DatabaseContext context = getDbContext();
 
-		if (createdTables.contains(name)) {
+		if (context.isCreated(name)) {
 			return;
 		}
 
+		context.lockWriter();
 		try {
-			for (Field field : getFields()) {
-				if (ColumnHelper.isColumn(field)) {
-					appendCreateColumns(sqlColumns, field);
+			if (context.isCreated(name)) {
+				return;
+			}
+			if (!tableExists(name)) {
+				execSQL(getSchema().getCreateTableSql(name));
+				createIndices();
+				createFullText();
+			}
+			context.setCreated(name, true);
+			//SQLite refuses to write rows referencing a missing table.
+			for (Relation relation : getSchema().getRelations().values()) {
+				if (!relation.isToMany() && relation.getTarget() != getClass()) {
+					ensureSchema(relation.getTarget());
 				}
 			}
-			trimLastDelimiter(sqlColumns);
-
-			execSQL(String.format(SQL_CREATE_TABLE, name, sqlColumns.toString()));
-			createIndicesIfNecessary();
-			createdTables.add(name);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
+		} finally {
+			context.unlockWriter();
 		}
 	}
 
-	private void createIndicesIfNecessary() {
-		HashMap<String, StringBuilder> indices = new HashMap<String, StringBuilder>();
-		//fill map
-		for (Field field : getFields()) {
-			if (ColumnHelper.isColumn(field)) {
-				String[] indexNames = field.getAnnotation(Column.class).indexNames();
-				for (String indexName : indexNames) {
-					if (!indices.containsKey(indexName)) {
-						indices.put(indexName, new StringBuilder());
-					}
-					indices.get(indexName).append(field.getName()).append(DELIMITER);
-				}
-			}
+	private static boolean tableExists(final String name) {
+		Cursor c = getDbContext().getWriter().rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+			new String[] { name });
+		try {
+			return c.moveToFirst();
+		} finally {
+			c.close();
 		}
+	}
 
-		//use map
-		for (Entry<String, StringBuilder> index : indices.entrySet()) {
-			String indexName = index.getKey();
-			StringBuilder columns = index.getValue();
-			trimLastDelimiter(columns);
-
-			execSQL(String.format(SQL_CREATE_INDEX, indexName, getTableName(), columns.toString()));
+	private void createIndices() {
+		for (String sql : getSchema().getCreateIndexSql().values()) {
+			execSQL(sql);
 		}
 	}
 
-	private void appendCreateColumns(final StringBuilder sqlColumns, final Field field) {
-		sqlColumns.append(SPACE).append(field.getName()).append(SPACE);
-		sqlColumns.append(TypeMapper.getSqlType(field.getType()));
-
-		StringBuilder constraints = ColumnHelper.getConstraints(field);
-		if (constraints.length() > 0) {
-			sqlColumns.append(constraints);
+	/**
+	 * Creates the FTS4 table and its triggers, when there are full-text columns.
+	 */
+	private void createFullText() {
+		for (String sql : getSchema().getCreateFullTextSql()) {
+			execSQL(sql);
 		}
-		sqlColumns.append(DELIMITER);
 	}
 
 	/**
-	 * You have to overwrite this method to fulfill your own upgrade handling. This method simply calls {@link #drop()}
-	 * . Maybe you want to handle quirks upgrades (when toVersion &lt; fromVersion). Then default behavior is drop and
-	 * create.
+	 * Overwrite this method to fulfill your own upgrade handling, e.g. to convert values. By default,
+	 * {@link SchemaMigration} adds the new columns and rebuilds the table only, when columns were removed or changed.
+	 * The rows are kept. It runs within a transaction, which also saves the new version.
 	 * 
 	 * @param fromVersion Version of this table in DB.
 	 * @param toVersion Version of this table in current annotation {@link TableMetaData}.
 	 */
 	protected void onUpgrade(final int fromVersion, final int toVersion) {
-		drop();
-		createIfNecessary();
-	}
-
-	private void setTypedValue(final Cursor c, final Field field) throws IllegalArgumentException,
-			IllegalAccessException {
-		field.setAccessible(true);
-		field.set(this, TypeMapper.getTypedValue(c, field));
+		SchemaMigration.migrate(getClass());
 	}
 
 	/**
@@ -598,7 +1646,7 @@ public abstract class Table implements Serializable {
 	 * @return the annotated version of this table.
 	 */
 	public final int getVersion() {
-		TableMetaData metaData = getClass().getAnnotation(TableMetaData.class);
+		TableMetaData metaData = getSchema().getMetaData();
 		if (metaData == null) {
 			throw new IllegalStateException("Table " + getTableName()
 				+ " has to declare a version!");
@@ -612,17 +1660,94 @@ public abstract class Table implements Serializable {
 	}
 
 	private void execSQL(final String sql) {
-		Log.i(TAG, String.format("Executing sql (%s): %s", db.getPath(), sql));
-		db.execSQL(sql);
+		DatabaseContext context = getDbContext();
+		long start = startTimer();
+		context.lockWriter();
+		try {
+			context.getWriter().execSQL(sql);
+		} finally {
+			context.unlockWriter();
+			if (start != 0L) {
+				notifyListeners(Operation.SCHEMA, getTableName(), sql, start, 0, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Registers a listener for all database operations.
+	 */
+	public static synchronized void addListener(final DbListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener must not be null");
+		}
+		List<DbListener> list = new ArrayList<DbListener>(Arrays.asList(listeners));
+		list.add(listener);
+		listeners = list.toArray(new DbListener[list.size()]);
+	}
+
+	public static synchronized void removeListener(final DbListener listener) {
+		List<DbListener> list = new ArrayList<DbListener>(Arrays.asList(listeners));
+		list.remove(listener);
+		listeners = list.toArray(new DbListener[list.size()]);
+	}
+
+	/**
+	 * @return the start time for {@link #notifyListeners}, 0 when nobody listens.
+	 */
+	static long startTimer() {
+		return listeners.length == 0 ? 0L : System.nanoTime();
+	}
+
+	/**
+	 * Notifies all listeners about a finished operation.
+	 * 
+	 * @param start the result of {@link #startTimer()}.
+	 */
+	static void notifyListeners(final Operation operation, final String tableName, final String sql,
+			final long start, final int rows, final long bytes) {
+		fireOperation(operation, tableName, sql, System.nanoTime() - start, rows, bytes);
+	}
+
+	/**
+	 * Notifies all listeners about a finished query, which wasn't timed by {@link #startTimer()}.
+	 * 
+	 * @param nanos the duration of the query.
+	 */
+	static void notifyListeners(final Operation operation, final String tableName, final String sql,
+			final long nanos, final int rows) {
+		fireOperation(operation, tableName, sql, nanos, rows, 0L);
+	}
+
+	private static void fireOperation(final Operation operation, final String tableName, final String sql,
+			final long nanos, final int rows, final long bytes) {
+		for (DbListener listener : listeners) {
+			try {
+				listener.onOperation(operation, tableName, sql, nanos, rows, bytes);
+			} catch (RuntimeException e) {
+				Log.w(TAG, "Listener " + listener + " failed", e);
+			}
+		}
+	}
+
+	private long sizeOf(final List<ColumnDescriptor> columns) {
+		long bytes = 0L;
+		for (ColumnDescriptor column : columns) {
+			bytes += TypeMapper.sizeOf(column.get(this));
+		}
+		return bytes;
+	}
+
+	private static long sizeOf(final Object[] values) {
+		long bytes = 0L;
+		for (Object value : values) {
+			bytes += TypeMapper.sizeOf(value);
+		}
+		return bytes;
 	}
 
 	@Override
 	public String toString() {
-		try {
-			return fieldsToUpdateSql(new StringBuilder()).toString();
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
-		}
+		return fieldsToUpdateSql(new StringBuilder()).toString();
 	}
 
 	/**
@@ -636,19 +1761,12 @@ public abstract class Table implements Serializable {
 			return false;
 		}
 		Table other = (Table) obj;
-		List<Field> fields = getFields();
-		if (!Arrays.equals(fields.toArray(), other.getFields().toArray())) {
-			return false;
-		}
-
-		try {
-			for (Field field : fields) {
-				if (!field.get(this).equals(field.get(other))) {
-					return false;
-				}
+		for (ColumnDescriptor column : getSchema().getColumns()) {
+			Object value = column.get(this);
+			Object otherValue = column.get(other);
+			if (!valueEquals(value, otherValue)) {
+				return false;
 			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
 		}
 		return true;
 	}
@@ -666,17 +1784,38 @@ public abstract class Table implements Serializable {
 //	}
 
 	/**
-	 * Closes the DB instance. You have to close the DB for your own, it won't get called on {@link #finalize()}!
+	 * Closes the DB instance. Pending asynchronous writes will be committed before. You have to close the DB for your
+	 * own, it won't get called on {@link #finalize()}!
 	 */
-	public static void closeDB() {
-		if (db != null && db.isOpen()) {
-			db.close();
+	public static synchronized void closeDB() {
+		if (writeQueue != null) {
+			writeQueue.flush();
+		}
+		if (dbContext != null) {
+			dbContext.close();
+			dbContext = null;
+		}
+		if (cache != null) {
+			cache.clear();
 		}
-		createdTables.clear();
 	}
 
-	public static void setDb(final SQLiteDatabase newDb) {
+	/**
+	 * Closes the current db and uses newDb as single connection for reads and writes.
+	 * 
+	 * @param newDb the new db, may be <code>null</code>.
+	 */
+	public static synchronized void setDb(final SQLiteDatabase newDb) {
+		setDbContext(newDb == null ? null : new DatabaseContext(newDb, 0));
+	}
+
+	/**
+	 * Closes the current db and uses the given connections.
+	 * 
+	 * @param newContext the new connections, may be <code>null</code>.
+	 */
+	public static synchronized void setDbContext(final DatabaseContext newContext) {
 		closeDB();
-		db = newDb;
+		dbContext = newContext;
 	}
 }
@@ -29,6 +29,13 @@ public abstract class TableAdapter<T extends Table> extends BaseAdapter {
 
 	private final int layout_id;
 
+	/**
+	 * Shows all rows of klaas without loading them at once. They will be loaded page by page, see {@link PagedList}.
+	 */
+	public TableAdapter(Class<T> klaas, Context context, int layout_id) {
+		this(new PagedList<T>(klaas), context, layout_id);
+	}
+
 	public TableAdapter(List<T> tables, Context context, int layout_id) {
 		this.tables = tables;
 		this.layout_id = layout_id;
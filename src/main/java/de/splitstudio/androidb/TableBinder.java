@@ -0,0 +1,67 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Reflection-free access to the columns of a {@link Table} class. Implementations are generated at compile time by
+ * the androiDB annotation processor as <code>YourTable$$TableBinder</code> (see {@link #SUFFIX}) and picked up by
+ * {@link TableSchema} automatically. When there is no binder, androiDB falls back to reflection.<br/>
+ * Columns are addressed by their position in {@link TableSchema#getColumns()}.
+ *
+ * @param <T> the bound table class.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public interface TableBinder<T extends Table> {
+
+	/** Suffix of the generated binder class name. */
+	String SUFFIX = "$$TableBinder";
+
+	/**
+	 * @return all column names in the order of the column positions. They have to match
+	 *         {@link TableSchema#getColumnNames()}, otherwise this binder will be ignored.
+	 */
+	String[] getColumnNames();
+
+	/**
+	 * @return a new, empty instance of the table class.
+	 */
+	T newInstance();
+
+	/**
+	 * Binds the value of a column to the statement.
+	 *
+	 * @param table the object to read from.
+	 * @param statement the compiled statement.
+	 * @param column position of the column.
+	 * @param index the 1-based placeholder index.
+	 */
+	void bind(T table, SQLiteStatement statement, int column, int index);
+
+	/**
+	 * Reads a column from the current row of the cursor into the table.
+	 *
+	 * @param table the object to fill.
+	 * @param c the cursor.
+	 * @param column position of the column.
+	 * @param index the cursor's column index.
+	 */
+	void fill(T table, Cursor c, int column, int index);
+
+}
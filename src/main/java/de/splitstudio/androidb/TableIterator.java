@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+/**
+ * Streams the rows of a cursor as {@link Table} objects. Each row is hydrated not until {@link #next()} is called, so
+ * only the current row is held in memory. It's also {@link Iterable} (returning itself), so you can use it in a
+ * for-each loop, but only once.<br/>
+ * When created with <code>reuseInstance</code>, each call of {@link #next()} fills and returns the same object. Use
+ * this for read-only scans, which don't keep references to the rows.
+ *
+ * @param <T> Type of the streamed tables.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class TableIterator<T extends Table> implements CloseableIterator<T>, Iterable<T> {
+
+	private final Cursor cursor;
+
+	private final RowMapper<T> mapper;
+
+	private final boolean reuseInstance;
+
+	private T instance;
+
+	private boolean prepared = false;
+
+	private boolean hasNext = false;
+
+	/**
+	 * @param klaas Class to instantiate T.
+	 * @param cursor the cursor, positioned *before* the first row. It will be closed by this iterator, also when this
+	 *            constructor fails.
+	 * @param reuseInstance <code>true</code>, when each row should be filled into the same instance.
+	 */
+	public TableIterator(final Class<T> klaas, final Cursor cursor, final boolean reuseInstance) {
+		this.cursor = cursor;
+		try {
+			this.mapper = new RowMapper<T>(klaas, cursor);
+		} catch (RuntimeException e) {
+			//nobody else will close it.
+			cursor.close();
+			throw e;
+		}
+		this.reuseInstance = reuseInstance;
+	}
+
+	public boolean hasNext() {
+		if (!prepared) {
+			hasNext = !cursor.isClosed() && cursor.moveToNext();
+			prepared = true;
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		prepared = false;
+		if (!reuseInstance) {
+			return mapper.map(cursor);
+		}
+		if (instance == null) {
+			instance = mapper.newInstance();
+		}
+		mapper.fill(instance, cursor);
+		return instance;
+	}
+
+	/**
+	 * Not supported, call {@link Table#delete()} on the returned object instead.
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException("Use Table.delete() instead.");
+	}
+
+	public void close() {
+		if (!cursor.isClosed()) {
+			cursor.close();
+		}
+	}
+
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+}
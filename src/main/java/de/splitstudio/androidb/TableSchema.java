@@ -0,0 +1,541 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import de.splitstudio.androidb.annotation.ColumnHelper;
+import de.splitstudio.androidb.annotation.Index;
+import de.splitstudio.androidb.annotation.ManyToOne.Action;
+import de.splitstudio.androidb.annotation.TableMetaData;
+import de.splitstudio.androidb.util.ReflectionHelper;
+
+/**
+ * The reflected structure of a {@link Table} subclass. It's built once per class (see {@link #of(Class)}) and holds
+ * all {@link ColumnDescriptor}s in their column order, the primary key, all index groups and {@link Relation}s. Use
+ * it instead of {@link ReflectionHelper#getFields(Class)} whenever you need to iterate over columns.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class TableSchema {
+
+	/** All schemas built so far. */
+	private static final Map<Class<? extends Table>, TableSchema> schemas =
+		new ConcurrentHashMap<Class<? extends Table>, TableSchema>();
+
+	/** Table names mapped to the tables, whose rows get changed by SQLite, when their rows are deleted. */
+	private static final Map<String, Set<String>> dependentTables = new ConcurrentHashMap<String, Set<String>>();
+
+	private final Class<? extends Table> tableClass;
+
+	private final String tableName;
+
+	private final TableMetaData metaData;
+
+	private final List<ColumnDescriptor> columns;
+
+	private final String[] columnNames;
+
+	private final String[] eagerColumnNames;
+
+	private final Map<String, ColumnDescriptor> columnsByName;
+
+	private final ColumnDescriptor primaryKey;
+
+	private final Map<String, IndexDescriptor> indices;
+
+	private final Map<String, Relation> relations;
+
+	private final List<ColumnDescriptor> fullTextColumns;
+
+	private final String insertSql;
+
+	private final String updateSql;
+
+	private final TableBinder<Table> binder;
+
+	/**
+	 * Retrieves the schema of the given table class. It will be built on first access and cached afterwards.
+	 *
+	 * @param klaas the table class.
+	 * @return the schema, never <code>null</code>.
+	 */
+	public static TableSchema of(final Class<? extends Table> klaas) {
+		TableSchema schema = schemas.get(klaas);
+		if (schema == null) {
+			schema = new TableSchema(klaas);
+			schemas.put(klaas, schema);
+			schema.registerDependents();
+		}
+		return schema;
+	}
+
+	private TableSchema(final Class<? extends Table> klaas) {
+		this.tableClass = klaas;
+		this.tableName = Table.getTableName(klaas);
+		this.metaData = klaas.getAnnotation(TableMetaData.class);
+
+		List<ColumnDescriptor> columns = new ArrayList<ColumnDescriptor>();
+		Map<String, ColumnDescriptor> columnsByName = new HashMap<String, ColumnDescriptor>();
+		Map<String, List<ColumnDescriptor>> columnIndices = new LinkedHashMap<String, List<ColumnDescriptor>>();
+		Map<String, Relation> relations = new LinkedHashMap<String, Relation>();
+		List<ColumnDescriptor> fullTextColumns = new ArrayList<ColumnDescriptor>();
+		ColumnDescriptor primaryKey = null;
+
+		for (Field field : ReflectionHelper.getFields(klaas)) {
+			if (!ColumnHelper.isColumn(field)) {
+				Relation relation = Relation.of(klaas, field);
+				if (relation != null) {
+					relations.put(relation.getName(), relation);
+				}
+				continue;
+			}
+			ColumnDescriptor column = new ColumnDescriptor(field, columns.size());
+			columns.add(column);
+			columnsByName.put(column.getName(), column);
+			if (column.isPrimaryKey() && primaryKey == null) {
+				primaryKey = column;
+			}
+			if (column.getColumn().fullText()) {
+				if (column.getSqlType() != SqlType.TEXT) {
+					throw new IllegalStateException("Full-text column " + column + " has to be of type TEXT");
+				}
+				fullTextColumns.add(column);
+			}
+			for (String indexName : column.getColumn().indexNames()) {
+				if (!columnIndices.containsKey(indexName)) {
+					columnIndices.put(indexName, new ArrayList<ColumnDescriptor>());
+				}
+				columnIndices.get(indexName).add(column);
+			}
+		}
+
+		Map<String, IndexDescriptor> indices = new LinkedHashMap<String, IndexDescriptor>();
+		for (Map.Entry<String, List<ColumnDescriptor>> index : columnIndices.entrySet()) {
+			List<String> names = new ArrayList<String>();
+			for (ColumnDescriptor column : index.getValue()) {
+				names.add(column.getName());
+			}
+			indices.put(index.getKey(), new IndexDescriptor(index.getKey(), tableName, names, false, null));
+		}
+		if (metaData != null) {
+			for (Index index : metaData.indices()) {
+				if (indices.containsKey(index.name())) {
+					throw new IllegalStateException("Table " + tableName + " declares index " + index.name()
+						+ " twice");
+				}
+				indices.put(index.name(), new IndexDescriptor(tableName, index));
+			}
+		}
+		for (Relation relation : relations.values()) {
+			if (!relation.isToMany()) {
+				addForeignKeyIndex(indices, columnsByName.get(relation.getColumn()), relation);
+			}
+		}
+
+		this.columns = Collections.unmodifiableList(columns);
+		this.columnsByName = columnsByName;
+		this.primaryKey = primaryKey;
+		this.indices = Collections.unmodifiableMap(indices);
+		this.relations = Collections.unmodifiableMap(relations);
+		this.fullTextColumns = Collections.unmodifiableList(fullTextColumns);
+		this.columnNames = new String[columns.size()];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = columns.get(i).getName();
+		}
+		List<String> eager = new ArrayList<String>(columns.size());
+		for (ColumnDescriptor column : columns) {
+			if (!column.isLazy()) {
+				eager.add(column.getName());
+			}
+		}
+		this.eagerColumnNames = eager.toArray(new String[eager.size()]);
+		this.insertSql = buildInsertSql();
+		this.updateSql = buildUpdateSql(columns);
+		this.binder = loadBinder();
+	}
+
+	/**
+	 * Adds an index for the foreign key column, unless it's already the first column of another index.
+	 */
+	private void addForeignKeyIndex(final Map<String, IndexDescriptor> indices, final ColumnDescriptor column,
+			final Relation relation) {
+		if (column == null) {
+			throw new IllegalStateException("Relation " + relation + " needs the column " + relation.getColumn());
+		}
+		for (IndexDescriptor index : indices.values()) {
+			if (index.startsWith(column.getName())) {
+				return;
+			}
+		}
+		String name = "fk_" + tableName + "_" + column.getName();
+		indices.put(name, new IndexDescriptor(name, tableName, Collections.singletonList(column.getName()), false,
+			null));
+	}
+
+	/**
+	 * Registers this table at the parents of its {@link Relation}s, whose deletion changes rows of this table.
+	 */
+	private void registerDependents() {
+		for (Relation relation : relations.values()) {
+			if (!relation.isToMany()
+					&& (relation.getOnDelete() == Action.CASCADE || relation.getOnDelete() == Action.SET_NULL)) {
+				String parent = Table.getTableName(relation.getTarget());
+				synchronized (dependentTables) {
+					if (!dependentTables.containsKey(parent)) {
+						dependentTables.put(parent, new CopyOnWriteArraySet<String>());
+					}
+				}
+				dependentTables.get(parent).add(tableName);
+			}
+		}
+	}
+
+	/**
+	 * Loads the generated {@link TableBinder} of the table class.
+	 *
+	 * @return the binder or <code>null</code>, when none was generated or it doesn't match the columns.
+	 */
+	@SuppressWarnings("unchecked")
+	private TableBinder<Table> loadBinder() {
+		Class<?> binderClass;
+		try {
+			binderClass = Class.forName(tableClass.getName() + TableBinder.SUFFIX, true, tableClass
+					.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		try {
+			TableBinder<Table> binder = (TableBinder<Table>) binderClass.getDeclaredConstructor().newInstance();
+			if (!Arrays.equals(columnNames, binder.getColumnNames())) {
+				Log.w(Table.TAG, "Ignoring outdated " + binderClass.getName() + ", columns don't match "
+						+ Arrays.toString(columnNames));
+				return null;
+			}
+			return binder;
+		} catch (Exception e) {
+			Log.w(Table.TAG, "Could not instantiate " + binderClass.getName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param name the table name, e.g. of a temporary copy while migrating.
+	 * @return the CREATE TABLE statement with all columns and foreign keys.
+	 */
+	public String getCreateTableSql(final String name) {
+		StringBuilder definitions = new StringBuilder();
+		for (ColumnDescriptor column : columns) {
+			if (definitions.length() > 0) {
+				definitions.append(',');
+			}
+			definitions.append(' ').append(column.getName()).append(' ').append(column.getSqlType());
+			definitions.append(column.getConstraints());
+		}
+		for (Relation relation : relations.values()) {
+			if (!relation.isToMany()) {
+				definitions.append(", ").append(relation.getForeignKeySql());
+			}
+		}
+		return String.format(Table.SQL_CREATE_TABLE, name, definitions);
+	}
+
+	/**
+	 * @return the CREATE INDEX statements of all {@link #getIndices() indices} by their name.
+	 */
+	public Map<String, String> getCreateIndexSql() {
+		Map<String, String> sql = new LinkedHashMap<String, String>();
+		for (IndexDescriptor index : indices.values()) {
+			sql.put(index.getName(), index.getCreateSql());
+		}
+		return sql;
+	}
+
+	/**
+	 * @return the name of the FTS4 table, which indexes the {@link #getFullTextColumns() full-text columns}.
+	 */
+	public String getFullTextTableName() {
+		return tableName + "_fts";
+	}
+
+	/**
+	 * @return the names of the triggers, which keep the FTS4 table in sync.
+	 */
+	public String[] getFullTextTriggerNames() {
+		String fts = getFullTextTableName();
+		return new String[] { fts + "_bd", fts + "_bu", fts + "_au", fts + "_ai" };
+	}
+
+	/**
+	 * Builds the FTS4 table with this table as external content, so the text isn't stored twice. Its docid is the
+	 * {@link Table#PRIMARY_KEY}. The triggers remove the old text before deletes and updates, while FTS4 can still read
+	 * it from this table, and index the new text after inserts and updates. Updates of other columns don't touch the
+	 * index.
+	 *
+	 * @return the CREATE statements of the FTS4 table and its triggers, an empty list without full-text columns.
+	 */
+	public List<String> getCreateFullTextSql() {
+		List<String> sql = new ArrayList<String>();
+		if (fullTextColumns.isEmpty()) {
+			return sql;
+		}
+		String fts = getFullTextTableName();
+		StringBuilder names = new StringBuilder();
+		StringBuilder newValues = new StringBuilder();
+		for (ColumnDescriptor column : fullTextColumns) {
+			names.append(", ").append(column.getName());
+			newValues.append(", new.").append(column.getName());
+		}
+		String[] triggers = getFullTextTriggerNames();
+		String delete = " BEGIN DELETE FROM " + fts + " WHERE docid = old." + Table.PRIMARY_KEY + "; END";
+		String insert = " BEGIN INSERT INTO " + fts + " (docid" + names + ") VALUES (new." + Table.PRIMARY_KEY
+				+ newValues + "); END";
+		String updateOf = " UPDATE OF " + Table.PRIMARY_KEY + names + " ON " + tableName;
+		sql.add("CREATE VIRTUAL TABLE IF NOT EXISTS " + fts + " USING fts4(content=\"" + tableName + "\""
+				+ names + ")");
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + triggers[0] + " BEFORE DELETE ON " + tableName + delete);
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + triggers[1] + " BEFORE" + updateOf + delete);
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + triggers[2] + " AFTER" + updateOf + insert);
+		sql.add("CREATE TRIGGER IF NOT EXISTS " + triggers[3] + " AFTER INSERT ON " + tableName + insert);
+		return sql;
+	}
+
+	/**
+	 * @return the statement, which indexes all existing rows again.
+	 */
+	public String getRebuildFullTextSql() {
+		String fts = getFullTextTableName();
+		return "INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')";
+	}
+
+	private String buildInsertSql() {
+		StringBuilder names = new StringBuilder();
+		StringBuilder placeholders = new StringBuilder();
+		for (String name : columnNames) {
+			if (names.length() > 0) {
+				names.append(", ");
+				placeholders.append(", ");
+			}
+			names.append(name);
+			placeholders.append('?');
+		}
+		return String.format(Table.SQL_INSERT, tableName, names, placeholders);
+	}
+
+	private String buildUpdateSql(final List<ColumnDescriptor> columns) {
+		StringBuilder assignments = new StringBuilder();
+		for (ColumnDescriptor column : columns) {
+			if (column.isPrimaryKey()) {
+				continue;
+			}
+			if (assignments.length() > 0) {
+				assignments.append(", ");
+			}
+			assignments.append(column.getName()).append("=?");
+		}
+		return String.format(Table.SQL_UPDATE, tableName, assignments, "?");
+	}
+
+	public Class<? extends Table> getTableClass() {
+		return tableClass;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * @return all columns with {@link de.splitstudio.androidb.annotation.Column#fullText()}, in column order.
+	 */
+	public List<ColumnDescriptor> getFullTextColumns() {
+		return fullTextColumns;
+	}
+
+	/**
+	 * @return the {@link TableMetaData} annotation of the table class or <code>null</code>, when it's not declared.
+	 */
+	public TableMetaData getMetaData() {
+		return metaData;
+	}
+
+	/**
+	 * @return all columns in the order they will appear in the db. The {@link Table#PRIMARY_KEY} is always first.
+	 */
+	public List<ColumnDescriptor> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return all column names in column order. This array is shared, so don't modify it!
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * @return the names of all columns, which aren't {@link ColumnDescriptor#isLazy() lazy}. These are selected by
+	 *         default. This array is shared, so don't modify it!
+	 */
+	public String[] getEagerColumnNames() {
+		return eagerColumnNames;
+	}
+
+	/**
+	 * @param columns the columns to select, <code>null</code> or empty for the {@link #getEagerColumnNames() eager
+	 *            columns}.
+	 * @return the columns including the primary key, so the other columns can still be fetched later. Don't modify
+	 *         it, it might be shared!
+	 */
+	public String[] projection(final String... columns) {
+		if (columns == null || columns.length == 0) {
+			return eagerColumnNames;
+		}
+		for (String column : columns) {
+			if (primaryKey == null || primaryKey.getName().equals(column)) {
+				return columns.clone();
+			}
+		}
+		String[] projection = new String[columns.length + 1];
+		projection[0] = primaryKey.getName();
+		System.arraycopy(columns, 0, projection, 1, columns.length);
+		return projection;
+	}
+
+	/**
+	 * @param name the column name.
+	 * @return the column with the given name or <code>null</code>, when there is no such column.
+	 */
+	public ColumnDescriptor getColumn(final String name) {
+		return columnsByName.get(name);
+	}
+
+	public ColumnDescriptor getPrimaryKey() {
+		return primaryKey;
+	}
+
+	/**
+	 * @return all indices by their name: the ones of the columns' index names, of {@link TableMetaData#indices()} and
+	 *         of the foreign keys.
+	 */
+	public Map<String, IndexDescriptor> getIndices() {
+		return indices;
+	}
+
+	/**
+	 * @return all {@link Relation}s by their field name in declaration order.
+	 */
+	public Map<String, Relation> getRelations() {
+		return relations;
+	}
+
+	/**
+	 * @param name the field name.
+	 * @return the relation of the field or <code>null</code>, when there is no such relation.
+	 */
+	public Relation getRelation(final String name) {
+		return relations.get(name);
+	}
+
+	/**
+	 * @param tableName a table name.
+	 * @return the names of all tables, whose rows get deleted or changed by SQLite, when rows of the table are
+	 *         deleted. Only tables with an already built schema are known.
+	 */
+	public static Set<String> getDependentTables(final String tableName) {
+		Set<String> dependents = dependentTables.get(tableName);
+		return dependents == null ? Collections.<String> emptySet() : dependents;
+	}
+
+	/**
+	 * @return the generated binder of the table class or <code>null</code>, when reflection has to be used.
+	 */
+	public TableBinder<Table> getBinder() {
+		return binder;
+	}
+
+	/**
+	 * Binds the value of column from table to the statement. Uses the {@link #getBinder() binder}, when available.
+	 *
+	 * @param table the object to read from.
+	 * @param column the column to bind.
+	 * @param statement the compiled statement.
+	 * @param index the 1-based placeholder index.
+	 */
+	public void bind(final Table table, final ColumnDescriptor column, final SQLiteStatement statement,
+			final int index) {
+		if (binder != null) {
+			binder.bind(table, statement, column.getPosition(), index);
+		} else {
+			column.bind(table, statement, index);
+		}
+	}
+
+	/**
+	 * Reads the value of column from the current row of the cursor into table. Uses the {@link #getBinder() binder},
+	 * when available.
+	 *
+	 * @param table the object to fill.
+	 * @param column the column to read.
+	 * @param c the cursor.
+	 * @param index the cursor's column index.
+	 */
+	public void read(final Table table, final ColumnDescriptor column, final Cursor c, final int index) {
+		if (binder != null) {
+			binder.fill(table, c, column.getPosition(), index);
+		} else {
+			column.read(table, c, index);
+		}
+	}
+
+	/**
+	 * @return the INSERT statement for all columns (in column order) with <code>?</code> placeholders.
+	 */
+	public String getInsertSql() {
+		return insertSql;
+	}
+
+	/**
+	 * @return the UPDATE statement for all columns except the primary key (in column order) with <code>?</code>
+	 *         placeholders. The last placeholder is the primary key.
+	 */
+	public String getUpdateSql() {
+		return updateSql;
+	}
+
+	/**
+	 * @param columns the columns to update. The primary key will be skipped.
+	 * @return the UPDATE statement for the given columns (in the given order) with <code>?</code> placeholders. The
+	 *         last placeholder is the primary key.
+	 */
+	public String getUpdateSql(final List<ColumnDescriptor> columns) {
+		return buildUpdateSql(columns);
+	}
+
+}
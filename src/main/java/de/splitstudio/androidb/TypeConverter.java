@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import android.database.Cursor;
+
+/**
+ * Converts the values of a java type, which SQLite can't store directly, into one of its storage classes and back.
+ * Register it with {@link Converters#register(Class, TypeConverter)}, before the first table using it is accessed.
+ * Each column resolves its converter only once.
+ *
+ * @param <T> the java type.
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public interface TypeConverter<T> {
+
+	/**
+	 * @return the column type of the converted values.
+	 */
+	SqlType getSqlType();
+
+	/**
+	 * @param value the java value, never <code>null</code>.
+	 * @return the value to store: a {@link Long}, {@link Double}, {@link String} or <code>byte[]</code>.
+	 */
+	Object toDb(T value);
+
+	/**
+	 * Reads a value, which isn't <code>NULL</code>.
+	 *
+	 * @param c the cursor.
+	 * @param index the cursor's column index.
+	 * @return the java value.
+	 */
+	T fromDb(Cursor c, int index);
+
+}
@@ -27,11 +27,13 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * Maps {@link java.lang.reflect.Field}'s type to SQL types and vice versa.
@@ -63,6 +65,11 @@ public class TypeMapper {
 		//@formatter:on
 	}
 
+	/**
+	 * @param type the java type of a field.
+	 * @return the column type. Types with a {@link TypeConverter} get its type, all other unknown types
+	 *         {@link SqlType#BLOB}.
+	 */
 	public static SqlType getSqlType(final Class<?> type) {
 		if (type == null) {
 			return NULL;
@@ -74,12 +81,153 @@ public class TypeMapper {
 			}
 		}
 
+		TypeConverter<Object> converter = Converters.get(type);
+		if (converter != null) {
+			return converter.getSqlType();
+		}
 		return BLOB;
 	}
 
+	/**
+	 * Binds value to the statement with the matching typed bind method. Types with a {@link TypeConverter} will be
+	 * converted first, all other unknown types will be bound as their {@link Object#toString()} representation.
+	 *
+	 * @param statement the compiled statement.
+	 * @param index the 1-based index of the placeholder.
+	 * @param value the value to bind, may be <code>null</code>.
+	 */
+	public static void bind(final SQLiteStatement statement, final int index, final Object value) {
+		if (value == null) {
+			statement.bindNull(index);
+		} else if (value instanceof String) {
+			statement.bindString(index, (String) value);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			statement.bindLong(index, ((Number) value).longValue());
+		} else if (value instanceof Double || value instanceof Float) {
+			statement.bindDouble(index, ((Number) value).doubleValue());
+		} else if (value instanceof Character) {
+			statement.bindLong(index, (Character) value);
+		} else if (value instanceof Boolean) {
+			statement.bindLong(index, (Boolean) value ? 1L : 0L);
+		} else if (value instanceof byte[]) {
+			statement.bindBlob(index, (byte[]) value);
+		} else {
+			TypeConverter<Object> converter = Converters.get(value.getClass());
+			if (converter != null) {
+				bind(statement, index, converter.toDb(value));
+			} else {
+				statement.bindString(index, value.toString());
+			}
+		}
+	}
+
+	/**
+	 * Converts value into a selection argument for queries. It's the text representation of what
+	 * {@link #bind(SQLiteStatement, int, Object)} would bind, so SQLite's type affinity makes both match the same rows.
+	 *
+	 * @param value the value, must not be <code>null</code> (use <code>IS NULL</code> instead).
+	 * @return the argument.
+	 */
+	public static String toArg(final Object value) {
+		if (value == null) {
+			throw new IllegalArgumentException("null can't be a query argument, use IS NULL instead.");
+		} else if (value instanceof Character) {
+			return String.valueOf((int) (Character) value);
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? "1" : "0";
+		} else if (value instanceof byte[]) {
+			throw new IllegalArgumentException("byte[] can't be a query argument, see inlineBlobs().");
+		} else if (value instanceof String || value instanceof Number) {
+			return value.toString();
+		}
+		TypeConverter<Object> converter = Converters.get(value.getClass());
+		return converter == null ? value.toString() : toArg(converter.toDb(value));
+	}
+
+	/**
+	 * Adds the query arguments of values to args like {@link #toArg(Object)}, but replaces the placeholders of values,
+	 * which are stored as BLOB (e.g. <code>byte[]</code> or a {@link java.util.UUID}), with a blob literal like
+	 * <code>X'CAFE'</code>. A text argument never equals a BLOB. Only plain <code>?</code> placeholders outside of
+	 * quotes are supported.
+	 *
+	 * @param selection SQL expression with <code>?</code> placeholders.
+	 * @param values the values for the placeholders.
+	 * @param args the list to add the query arguments to.
+	 * @return selection with the blob literals.
+	 */
+	public static String inlineBlobs(final String selection, final Object[] values, final List<String> args) {
+		StringBuilder sql = new StringBuilder(selection.length());
+		int next = 0;
+		char quote = 0;
+		for (int i = 0; i < selection.length(); i++) {
+			char c = selection.charAt(i);
+			if (quote != 0) {
+				quote = c == quote ? 0 : quote;
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == '?' && next < values.length) {
+				Object value = toDb(values[next++]);
+				if (value instanceof byte[]) {
+					appendBlob(sql, (byte[]) value);
+					continue;
+				}
+				args.add(toArg(value));
+			}
+			sql.append(c);
+		}
+		//let SQLite complain about superfluous arguments.
+		while (next < values.length) {
+			args.add(toArg(values[next++]));
+		}
+		return sql.toString();
+	}
+
+	private static Object toDb(final Object value) {
+		TypeConverter<Object> converter = value == null ? null : Converters.get(value.getClass());
+		return converter == null ? value : converter.toDb(value);
+	}
+
+	private static void appendBlob(final StringBuilder sql, final byte[] value) {
+		sql.append("X'");
+		for (byte b : value) {
+			sql.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		sql.append('\'');
+	}
+
+	/**
+	 * @return the approximate number of bytes SQLite stores for value.
+	 */
+	public static long sizeOf(final Object value) {
+		if (value == null) {
+			return 0L;
+		} else if (value instanceof String) {
+			return ((String) value).length();
+		} else if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		} else if (value instanceof Boolean || value instanceof Byte) {
+			return 1L;
+		} else if (value instanceof Short || value instanceof Character) {
+			return 2L;
+		} else if (value instanceof Integer || value instanceof Float) {
+			return 4L;
+		} else if (value instanceof Number) {
+			return 8L;
+		}
+		TypeConverter<Object> converter = Converters.get(value.getClass());
+		return converter == null ? value.toString().length() : sizeOf(converter.toDb(value));
+	}
+
 	public static String getValueAsString(final Cursor cursor, final Field field) {
-		int index = cursor.getColumnIndex(field.getName());
-		Type type = field.getType();
+		return getValueAsString(cursor, cursor.getColumnIndex(field.getName()), field.getType());
+	}
+
+	/**
+	 * Same as {@link #getValueAsString(Cursor, Field)}, but with an already resolved column index and type (see
+	 * {@link ColumnDescriptor#getType()}).
+	 */
+	public static String getValueAsString(final Cursor cursor, final int index, final Type type) {
 		if (type.equals(long.class) || type.equals(Long.class)) {
 			return valueOf(cursor.getLong(index));
 		} else if (type.equals(int.class) || type.equals(Integer.class)) {
@@ -101,8 +249,14 @@ public class TypeMapper {
 	}
 
 	public static Object getTypedValue(final Cursor cursor, final Field field) {
-		int index = cursor.getColumnIndex(field.getName());
-		Type type = field.getType();
+		return getTypedValue(cursor, cursor.getColumnIndex(field.getName()), field.getType());
+	}
+
+	/**
+	 * Same as {@link #getTypedValue(Cursor, Field)}, but with an already resolved column index and type (see
+	 * {@link ColumnDescriptor#getType()}).
+	 */
+	public static Object getTypedValue(final Cursor cursor, final int index, final Type type) {
 		if (type.equals(long.class) || type.equals(Long.class)) {
 			return cursor.getLong(index);
 		} else if (type.equals(int.class) || type.equals(Integer.class)) {
@@ -119,6 +273,13 @@ public class TypeMapper {
 			return (char) cursor.getShort(index);
 		} else if (type.equals(String.class)) {
 			return cursor.getString(index);
+		} else if (type.equals(byte[].class)) {
+			return cursor.getBlob(index);
+		} else if (type instanceof Class<?>) {
+			TypeConverter<Object> converter = Converters.get((Class<?>) type);
+			if (converter != null) {
+				return cursor.isNull(index) ? null : converter.fromDb(cursor, index);
+			}
 		}
 		return null;
 	}
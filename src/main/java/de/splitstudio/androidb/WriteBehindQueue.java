@@ -0,0 +1,370 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+/**
+ * Executes write operations on a dedicated thread. The thread collects pending operations from all callers for up to
+ * {@link #getMaxDelayMillis()} ms or {@link #getMaxBatchSize()} operations and runs them in one transaction (group
+ * commit). The returned futures complete, when that transaction is committed.<br/>
+ * The queue is bounded: when it's full, {@link #submit(Callable)} waits at most {@link #getOfferTimeoutMillis()} ms
+ * and rejects the operation afterwards, so callers never block on disk I/O longer than they want to.<br/>
+ * A failing operation only fails its own future, all others of the batch will be committed anyway. An operation may
+ * open (nested) transactions, e.g. {@link Table#insertAll(java.util.Collection)}. But when one of them isn't
+ * successful, SQLite rolls back the whole batch: then all futures of the batch fail and the rows written by
+ * {@link Table#saveAsync()} and friends get their previous state back.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class WriteBehindQueue {
+
+	/** Default maximal number of pending operations. */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/** Default maximal number of operations per transaction. */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+	/** Default time to wait for more operations, before the transaction gets committed. */
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 20;
+
+	private static final String TAG = WriteBehindQueue.class.getSimpleName();
+
+	private static final String SQL_CREATE_MARKER = "CREATE TEMP TABLE IF NOT EXISTS write_behind_batch (mark INTEGER)";
+
+	private static final String SQL_DELETE_MARKER = "DELETE FROM temp.write_behind_batch";
+
+	private static final String SQL_INSERT_MARKER = "INSERT INTO temp.write_behind_batch (mark) VALUES (%d)";
+
+	private static final String SQL_COUNT_MARKER = "SELECT COUNT(*) FROM temp.write_behind_batch WHERE mark = %d";
+
+	private final BlockingQueue<Operation<?>> queue;
+
+	private final int maxBatchSize;
+
+	private final long maxDelayMillis;
+
+	private final long offerTimeoutMillis;
+
+	private final Thread thread;
+
+	private volatile boolean closed = false;
+
+	/** Number of batches, only used by the writer thread. */
+	private long batches = 0L;
+
+	/**
+	 * Creates a queue with default settings, which rejects operations immediately when it's full.
+	 */
+	public WriteBehindQueue() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, 0L);
+	}
+
+	/**
+	 * @param capacity maximal number of pending operations.
+	 * @param maxBatchSize maximal number of operations per transaction.
+	 * @param maxDelayMillis time to wait for more operations, before the transaction gets committed.
+	 * @param offerTimeoutMillis time a caller waits, when the queue is full. 0 rejects immediately.
+	 */
+	public WriteBehindQueue(final int capacity, final int maxBatchSize, final long maxDelayMillis,
+			final long offerTimeoutMillis) {
+		if (capacity < 1 || maxBatchSize < 1 || maxDelayMillis < 0 || offerTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Invalid write queue settings");
+		}
+		this.queue = new LinkedBlockingQueue<Operation<?>>(capacity);
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.offerTimeoutMillis = offerTimeoutMillis;
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				loop();
+			}
+		}, TAG);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queues a write operation.
+	 *
+	 * @param callable the operation. It runs on the writer thread within a transaction.
+	 * @return the future result, which is available after the commit.
+	 * @throws RejectedExecutionException when the queue is full or closed.
+	 */
+	public <V> Future<V> submit(final Callable<V> callable) {
+		return submit(callable, Collections.<Table> emptyList());
+	}
+
+	/**
+	 * Same as {@link #submit(Callable)}, but restores the {@link Table.State} of the written rows, when the batch was
+	 * rolled back.
+	 */
+	<V> Future<V> submit(final Callable<V> callable, final Collection<? extends Table> rows) {
+		if (closed) {
+			throw new RejectedExecutionException("Write queue is closed");
+		}
+		Operation<V> operation = new Operation<V>(callable, rows);
+		boolean queued;
+		try {
+			queued = queue.offer(operation, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			queued = false;
+		}
+		if (!queued) {
+			throw new RejectedExecutionException("Write queue is full (" + queue.size() + " pending operations)");
+		}
+		return operation;
+	}
+
+	/**
+	 * Blocks until all operations queued before are committed.
+	 */
+	public void flush() {
+		if (!thread.isAlive()) {
+			return;
+		}
+		Operation<Object> marker = new Operation<Object>(null, Collections.<Table> emptyList());
+		try {
+			queue.put(marker);
+			marker.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Rejects all new operations, commits the pending ones and stops the writer thread.
+	 */
+	public void close() {
+		closed = true;
+		flush();
+		thread.interrupt();
+	}
+
+	/**
+	 * @return number of pending operations.
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	public long getOfferTimeoutMillis() {
+		return offerTimeoutMillis;
+	}
+
+	private void loop() {
+		List<Operation<?>> batch = new ArrayList<Operation<?>>(maxBatchSize);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				Operation<?> first = queue.take();
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + maxDelayMillis;
+				while (batch.size() < maxBatchSize) {
+					long remaining = deadline - System.currentTimeMillis();
+					Operation<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				commit(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			//closed.
+		}
+		queue.drainTo(batch);
+		for (Operation<?> operation : batch) {
+			operation.fail(new RejectedExecutionException("Write queue was closed"));
+		}
+	}
+
+	private void commit(final List<Operation<?>> batch) {
+		DatabaseContext context;
+		try {
+			context = Table.getDbContext();
+		} catch (IllegalStateException e) {
+			for (Operation<?> operation : batch) {
+				operation.fail(e);
+			}
+			return;
+		}
+
+		SQLiteDatabase db = context.getWriter();
+		context.lockWriter();
+		try {
+			long mark = ++batches;
+			db.execSQL(SQL_CREATE_MARKER);
+			db.beginTransaction();
+			try {
+				db.execSQL(SQL_DELETE_MARKER);
+				db.execSQL(String.format(SQL_INSERT_MARKER, mark));
+				for (Operation<?> operation : batch) {
+					operation.execute();
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+			if (!isCommitted(db, mark)) {
+				throw new SQLException("The batch was rolled back, because a transaction of an operation failed");
+			}
+			for (Operation<?> operation : batch) {
+				operation.complete();
+			}
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Could not commit " + batch.size() + " operations", e);
+			for (Operation<?> operation : batch) {
+				operation.rollback();
+				operation.fail(e);
+			}
+		} finally {
+			context.unlockWriter();
+		}
+	}
+
+	/**
+	 * An inner transaction, which isn't successful, silently rolls back the outermost one. So the batch writes a mark,
+	 * which is only there after a commit.
+	 */
+	private static boolean isCommitted(final SQLiteDatabase db, final long mark) {
+		SQLiteStatement statement = db.compileStatement(String.format(SQL_COUNT_MARKER, mark));
+		try {
+			return statement.simpleQueryForLong() > 0L;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * A queued operation. Its result will be published not until {@link #complete()}.
+	 */
+	private static class Operation<V> implements Future<V> {
+
+		private final Callable<V> callable;
+
+		private final Collection<? extends Table> rows;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private List<Table.State> states;
+
+		private V result;
+
+		private Throwable error;
+
+		Operation(final Callable<V> callable, final Collection<? extends Table> rows) {
+			this.callable = callable;
+			this.rows = rows;
+		}
+
+		void execute() {
+			if (callable == null) {
+				return;
+			}
+			states = new ArrayList<Table.State>(rows.size());
+			for (Table row : rows) {
+				states.add(new Table.State(row));
+			}
+			try {
+				result = callable.call();
+			} catch (Throwable e) {
+				error = e;
+			}
+		}
+
+		/**
+		 * Restores the rows as they were before {@link #execute()}.
+		 */
+		void rollback() {
+			if (states != null) {
+				for (Table.State state : states) {
+					state.restore();
+				}
+			}
+		}
+
+		void complete() {
+			done.countDown();
+		}
+
+		void fail(final Throwable e) {
+			error = e;
+			done.countDown();
+		}
+
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		public boolean isCancelled() {
+			return false;
+		}
+
+		public boolean isDone() {
+			return done.getCount() == 0L;
+		}
+
+		public V get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+		private V getResult() throws ExecutionException {
+			if (error != null) {
+				throw new ExecutionException(error);
+			}
+			return result;
+		}
+	}
+}
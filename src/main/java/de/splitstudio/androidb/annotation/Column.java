@@ -43,11 +43,16 @@ public @interface Column {
 	String[] indexNames() default {};
 
 	/**
-	 * Foreign Keys are only available in SQLite 3.6.19, which was first used in Android 2.2 (API-Level 8).
-	 * 
-	 * @see http://www.sqlite.org/foreignkeys.html
-	 * @return
+	 * Lazy columns won't be selected by the default queries. Their value will be loaded by the primary key on the
+	 * first call of {@link de.splitstudio.androidb.Table#fetch(String)}, so call it in the getter. Use it for large
+	 * TEXT or BLOB columns, which are rarely needed.
 	 */
-	//String foreignKey() default "";
+	boolean lazy() default false;
+
+	/**
+	 * Full-text columns get indexed in the FTS4 table <code>&lt;table&gt;_fts</code>, which is kept in sync by
+	 * triggers. Search them with {@link de.splitstudio.androidb.Search}. Only TEXT columns are allowed.
+	 */
+	boolean fullText() default false;
 
 }
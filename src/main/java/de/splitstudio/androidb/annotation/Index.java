@@ -0,0 +1,69 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.annotation;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * An index declared in {@link TableMetaData#indices()}. Unlike {@link Column#indexNames()}, it defines the order of
+ * its columns, their sort order, uniqueness and a condition:
+ * 
+ * <pre>
+ * &#064;TableMetaData(version = 2, indices = {
+ * 	&#064;Index(name = &quot;idx_open_by_date&quot;, columns = { &quot;date DESC&quot;, &quot;amount&quot; }, where = &quot;done = 0&quot;),
+ * 	&#064;Index(name = &quot;idx_email&quot;, columns = &quot;lower(email)&quot;, unique = true) })
+ * </pre>
+ * 
+ * SQLite has no INCLUDE clause, so a covering index simply lists the selected columns after the searched ones. Queries
+ * selecting only these columns are answered from the index without touching the table.
+ * 
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@Target( {})
+@Retention(value = RUNTIME)
+public @interface Index {
+
+	/**
+	 * @return the index name, unique within the database.
+	 */
+	String name();
+
+	/**
+	 * Each entry is a column, optionally followed by <code>COLLATE</code>, <code>ASC</code> or <code>DESC</code>, or
+	 * an expression like <code>lower(email)</code>. Expressions need SQLite 3.9.0 (API-Level 24).
+	 * 
+	 * @return the indexed columns in their order.
+	 */
+	String[] columns();
+
+	/**
+	 * @return <code>true</code>, when no two rows may have the same values. NULL values are always distinct.
+	 */
+	boolean unique() default false;
+
+	/**
+	 * Partial indices need SQLite 3.8.0 (API-Level 21). Only queries, whose WHERE clause implies this condition, use
+	 * them.
+	 * 
+	 * @return the condition of the indexed rows without "WHERE", empty for all rows.
+	 */
+	String where() default "";
+
+}
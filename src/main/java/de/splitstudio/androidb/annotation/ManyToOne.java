@@ -0,0 +1,77 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.annotation;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for a field holding the parent row of a many-to-one relation. The field itself isn't a column: the
+ * parent's primary key is stored in the INTEGER {@link Column} named by {@link #column()}, which gets a FOREIGN KEY
+ * constraint and an index. The field gets filled for a whole result set with a single query by
+ * {@link de.splitstudio.androidb.Query#include(String...)}.
+ * 
+ * <pre>
+ * &#064;Column
+ * Long categoryId;
+ * 
+ * &#064;ManyToOne(column = &quot;categoryId&quot;, onDelete = Action.CASCADE)
+ * Category category;
+ * </pre>
+ * 
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@Target( { FIELD })
+@Retention(value = RUNTIME)
+public @interface ManyToOne {
+
+	/** What SQLite does with the children, when their parent gets deleted. */
+	enum Action {
+		NO_ACTION("NO ACTION"), RESTRICT("RESTRICT"), SET_NULL("SET NULL"), CASCADE("CASCADE");
+
+		private final String sql;
+
+		private Action(final String sql) {
+			this.sql = sql;
+		}
+
+		/**
+		 * @return the action as used in the FOREIGN KEY clause.
+		 */
+		public String toSql() {
+			return sql;
+		}
+	}
+
+	/**
+	 * @return name of the column holding the parent's primary key.
+	 */
+	String column();
+
+	/**
+	 * Foreign keys are only enforced since SQLite 3.6.19, which was first used in Android 2.2 (API-Level 8). Older
+	 * versions ignore them.
+	 * 
+	 * @see http://www.sqlite.org/foreignkeys.html
+	 * @return the action, when the parent gets deleted.
+	 */
+	Action onDelete() default Action.NO_ACTION;
+
+}
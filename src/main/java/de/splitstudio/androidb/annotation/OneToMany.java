@@ -0,0 +1,46 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb.annotation;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for a <code>List</code> field holding the children of a one-to-many relation. It's the inverse of a
+ * {@link ManyToOne} field in the child table, which is named by {@link #mappedBy()}. The children of a whole result
+ * set are loaded with a single query by {@link de.splitstudio.androidb.Query#include(String...)}.
+ * 
+ * <pre>
+ * &#064;OneToMany(mappedBy = &quot;category&quot;)
+ * List&lt;Expense&gt; expenses;
+ * </pre>
+ * 
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@Target( { FIELD })
+@Retention(value = RUNTIME)
+public @interface OneToMany {
+
+	/**
+	 * @return name of the {@link ManyToOne} field of the child table.
+	 */
+	String mappedBy();
+
+}
@@ -33,4 +33,9 @@ public @interface TableMetaData {
 
 	int version();
 
+	/**
+	 * @return additional indices, see {@link Index}.
+	 */
+	Index[] indices() default {};
+
 }
@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class ConvertersTest extends DbTestCase {
+
+	static {
+		//before the first access of Setting.
+		Converters.register(Priority.class, Converters.byOrdinal(Priority.class));
+	}
+
+	@Test
+	public void convertedValuesRoundTrip() {
+		Setting setting = new Setting();
+		setting.color = Color.GREEN;
+		setting.priority = Priority.HIGH;
+		setting.uuid = UUID.randomUUID();
+		setting.date = new Date(1234L);
+		setting.buffer = ByteBuffer.wrap(new byte[] { 1, 2 });
+		assertTrue(setting.save());
+
+		assertEquals("GREEN,1,1234,16,2", queryForString("SELECT color || ',' || priority || ',' || date || ','"
+				+ " || length(uuid) || ',' || length(buffer) FROM Setting"));
+		assertEquals("text,integer,integer,blob,blob", queryForString("SELECT typeof(color) || ',' || typeof(priority)"
+				+ " || ',' || typeof(date) || ',' || typeof(uuid) || ',' || typeof(buffer) FROM Setting"));
+		Setting loaded = Table.find(Setting.class, setting.getId());
+		assertEquals(Color.GREEN, loaded.color);
+		assertEquals(Priority.HIGH, loaded.priority);
+		assertEquals(setting.uuid, loaded.uuid);
+		assertEquals(new Date(1234L), loaded.date);
+		assertEquals(ByteBuffer.wrap(new byte[] { 1, 2 }), loaded.buffer);
+	}
+
+	@Test
+	public void nullIsNotConverted() {
+		assertTrue(new Setting().save());
+
+		Setting loaded = Table.all(Setting.class).get(0);
+		assertNull(loaded.color);
+		assertNull(loaded.priority);
+		assertNull(loaded.uuid);
+		assertNull(loaded.date);
+		assertNull(loaded.buffer);
+	}
+
+	@Test
+	public void convertedArguments() {
+		Setting setting = new Setting();
+		setting.color = Color.RED;
+		setting.date = new Date(1000L);
+		assertTrue(setting.save());
+
+		assertEquals(1, Table.count(Setting.class, "color = ? AND date < ?", Color.RED, new Date(2000L)));
+		assertEquals(0, Table.count(Setting.class, "color = ?", Color.GREEN));
+	}
+
+	public enum Color {
+		RED, GREEN
+	}
+
+	public enum Priority {
+		LOW, HIGH
+	}
+
+	@TableMetaData(version = 1)
+	public static class Setting extends Table {
+
+		@Column
+		public Color color;
+
+		@Column
+		public Priority priority;
+
+		@Column
+		public UUID uuid;
+
+		@Column
+		public Date date;
+
+		@Column
+		public ByteBuffer buffer;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sqlite.SQLiteConfig;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class DatabaseContextTest extends DbTestCase {
+
+	@Test
+	public void queriesUseAllReaders() {
+		DatabaseContext context = Table.getDbContext();
+		assertTrue(context.hasReaders());
+
+		Set<SQLiteDatabase> readers = new HashSet<SQLiteDatabase>();
+		for (int i = 0; i < 2 * Table.getReaderCount(); i++) {
+			readers.add(context.getReader());
+		}
+		assertEquals(Table.getReaderCount(), readers.size());
+		assertTrue(!readers.contains(context.getWriter()));
+	}
+
+	@Test
+	public void writingThreadReadsFromWriter() throws Exception {
+		//creates the table outside of the rolled back transaction.
+		new Item();
+		final DatabaseContext context = Table.getDbContext();
+		SQLiteDatabase writer = context.getWriter();
+		final SQLiteDatabase[] connection = new SQLiteDatabase[1];
+		final int[] count = new int[1];
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				connection[0] = context.getReader();
+				count[0] = Table.count(Item.class, null);
+			}
+		};
+
+		context.lockWriter();
+		try {
+			assertSame(writer, context.getReader());
+			writer.beginTransaction();
+			try {
+				assertTrue(new Item("uncommitted").save());
+				assertSame(writer, context.getReader());
+				assertEquals(1, Table.count(Item.class, null));
+				reader.start();
+				reader.join();
+			} finally {
+				writer.endTransaction();
+			}
+		} finally {
+			context.unlockWriter();
+		}
+
+		assertNotSame(writer, connection[0]);
+		assertEquals(0, count[0]);
+		assertNotSame(writer, context.getReader());
+		assertEquals(0, Table.count(Item.class, null));
+	}
+
+	@Test
+	public void unlockTasksRunWhenLockIsReleased() {
+		DatabaseContext context = Table.getDbContext();
+		final int[] runs = new int[1];
+		context.lockWriter();
+		try {
+			context.lockWriter();
+			try {
+				context.runOnUnlock(new Runnable() {
+					public void run() {
+						runs[0]++;
+					}
+				});
+			} finally {
+				context.unlockWriter();
+			}
+			assertEquals(0, runs[0]);
+		} finally {
+			context.unlockWriter();
+		}
+		assertEquals(1, runs[0]);
+	}
+
+	@Test
+	public void usesConnectionsOfCaller() throws SQLException {
+		String url = "jdbc:sqlite:" + file.getPath();
+		SQLiteDatabase writer = SQLiteDatabase.wrap(DriverManager.getConnection(url));
+		Cursor c = writer.rawQuery("PRAGMA journal_mode = WAL", new String[0]);
+		c.close();
+		SQLiteConfig config = new SQLiteConfig();
+		config.setReadOnly(true);
+		SQLiteDatabase reader = SQLiteDatabase.wrap(DriverManager.getConnection(url, config.toProperties()));
+		Table.setDbContext(new DatabaseContext(writer, new SQLiteDatabase[] { reader }));
+
+		Item item = new Item("item");
+		assertTrue(item.save());
+
+		assertSame(reader, Table.getDbContext().getReader());
+		assertEquals("item", Table.find(Item.class, item.getId()).name);
+	}
+
+	@Test
+	public void singleConnectionReadsAndWrites() {
+		Table.setDb(SQLiteDatabase.create(null));
+		DatabaseContext context = Table.getDbContext();
+
+		assertTrue(new Item("item").save());
+
+		assertFalse(context.hasReaders());
+		assertSame(context.getWriter(), context.getReader());
+		assertEquals(1, Table.count(Item.class, null));
+	}
+}
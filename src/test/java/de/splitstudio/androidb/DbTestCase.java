@@ -0,0 +1,68 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+
+import android.database.Cursor;
+
+/**
+ * Opens a new database file before each test and deletes it afterwards.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public abstract class DbTestCase {
+
+	protected File file;
+
+	@Before
+	public void openDb() throws IOException {
+		file = File.createTempFile(getClass().getSimpleName(), Table.DB_SUFFIX);
+		file.delete();
+		Table.openOrCreateDB(file);
+	}
+
+	@After
+	public void closeDb() {
+		Table.closeDB();
+		file.delete();
+	}
+
+	/**
+	 * Closes and opens the database file again, e.g. to upgrade a table with a newer version of its class.
+	 */
+	protected void reopen() {
+		Table.closeDB();
+		Table.openOrCreateDB(file);
+	}
+
+	/**
+	 * @return the first column of the first row, <code>null</code> when there is none.
+	 */
+	protected static String queryForString(final String sql, final String... args) {
+		Cursor c = Table.getReadableDb().rawQuery(sql, args);
+		try {
+			return c.moveToFirst() ? c.getString(0) : null;
+		} finally {
+			c.close();
+		}
+	}
+}
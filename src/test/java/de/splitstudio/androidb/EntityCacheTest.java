@@ -0,0 +1,111 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class EntityCacheTest extends DbTestCase {
+
+	@Before
+	public void setUp() {
+		Table.enableCache(10);
+	}
+
+	@After
+	public void tearDown() {
+		Table.disableCache();
+	}
+
+	@Test
+	public void foundValuesAreCopies() {
+		Event event = new Event();
+		event.date = new Date(1000L);
+		event.data = new byte[] { 1 };
+		assertTrue(event.save());
+
+		Event first = Table.find(Event.class, event.getId());
+		first.date.setTime(2000L);
+		first.data[0] = 2;
+		Event second = Table.find(Event.class, event.getId());
+		assertEquals(1, Table.getCache().getHitCount());
+		assertEquals(new Date(1000L), second.date);
+		assertEquals(1, second.data[0]);
+	}
+
+	@Test
+	public void staleRowIsNotCached() {
+		Event event = new Event();
+		event.date = new Date(1000L);
+		assertTrue(event.save());
+		EntityCache cache = Table.getCache();
+
+		long generation = cache.getGeneration();
+		cache.remove(event.getTableName(), event.getId());
+		assertFalse(cache.put(event, generation));
+		assertFalse(cache.fill(new Event(), event.getId()));
+
+		assertTrue(cache.put(event, cache.getGeneration()));
+		assertTrue(cache.fill(new Event(), event.getId()));
+	}
+
+	@Test
+	public void rowReadDuringTransactionIsNotCached() throws Exception {
+		Item item = new Item("old");
+		assertTrue(item.save());
+		final long id = item.getId();
+		final String[] read = new String[1];
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				read[0] = Table.find(Item.class, id).name;
+			}
+		};
+
+		DatabaseContext context = Table.getDbContext();
+		assertTrue(context.hasReaders());
+		context.lockWriter();
+		try {
+			context.getWriter().beginTransaction();
+			try {
+				item.name = "new";
+				assertTrue(item.save());
+				//reads the committed row from a reader connection.
+				reader.start();
+				reader.join();
+				context.getWriter().setTransactionSuccessful();
+			} finally {
+				context.getWriter().endTransaction();
+			}
+		} finally {
+			context.unlockWriter();
+		}
+
+		assertEquals("old", read[0]);
+		assertEquals("new", Table.find(Item.class, id).name);
+	}
+}
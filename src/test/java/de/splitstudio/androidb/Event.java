@@ -0,0 +1,44 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import java.util.Date;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * A table with mutable column values.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+@TableMetaData(version = 1)
+public class Event extends Table {
+
+	@Column
+	public Date date;
+
+	@Column
+	public byte[] data;
+
+	public Event() {
+	}
+
+	Event(final Date date) {
+		this.date = date;
+	}
+}
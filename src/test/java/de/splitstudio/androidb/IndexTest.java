@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.Index;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class IndexTest extends DbTestCase {
+
+	@Test
+	public void declaredIndicesAreCreated() {
+		new Account();
+
+		assertEquals("CREATE INDEX idx_open_by_date ON Account (date DESC,amount) WHERE done = 0", queryForString(
+			"SELECT sql FROM sqlite_master WHERE name = 'idx_open_by_date'"));
+		assertEquals("CREATE UNIQUE INDEX idx_email ON Account (lower(email))", queryForString(
+			"SELECT sql FROM sqlite_master WHERE name = 'idx_email'"));
+	}
+
+	@Test
+	public void uniqueExpressionIndexRejectsDuplicates() {
+		assertTrue(new Account("a@example.com", 0).insert());
+		try {
+			new Account("A@example.com", 0).insert();
+			fail("lower(email) has to be unique");
+		} catch (RuntimeException e) {
+			//expected
+		}
+
+		assertEquals(1, Table.count(Account.class, null));
+	}
+
+	@Test
+	public void partialIndexIsUsedForItsCondition() {
+		new Account();
+
+		assertTrue(explain("SELECT date, amount FROM Account WHERE done = 0 ORDER BY date DESC").contains(
+			"USING COVERING INDEX idx_open_by_date"));
+		assertFalse(explain("SELECT date, amount FROM Account WHERE done = 1 ORDER BY date DESC").contains(
+			"idx_open_by_date"));
+	}
+
+	private static String explain(final String sql) {
+		StringBuilder plan = new StringBuilder();
+		Cursor c = Table.getReadableDb().rawQuery("EXPLAIN QUERY PLAN " + sql, new String[0]);
+		try {
+			int detail = c.getColumnIndex("detail");
+			while (c.moveToNext()) {
+				plan.append(c.getString(detail)).append('\n');
+			}
+		} finally {
+			c.close();
+		}
+		return plan.toString();
+	}
+
+	@TableMetaData(version = 1, indices = {
+		@Index(name = "idx_open_by_date", columns = { "date DESC", "amount" }, where = "done = 0"),
+		@Index(name = "idx_email", columns = "lower(email)", unique = true) })
+	public static class Account extends Table {
+
+		@Column
+		public String email;
+
+		@Column
+		public long date;
+
+		@Column
+		public int amount;
+
+		@Column
+		public int done;
+
+		public Account() {
+		}
+
+		Account(final String email, final long date) {
+			this.email = email;
+			this.date = date;
+		}
+	}
+}
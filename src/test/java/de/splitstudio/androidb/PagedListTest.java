@@ -0,0 +1,49 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class PagedListTest extends DbTestCase {
+
+	@Test
+	public void pagesByConvertedColumn() {
+		for (int i = 5; i > 0; i--) {
+			Event event = new Event();
+			event.date = new Date(i * 1000L);
+			assertTrue(event.save());
+		}
+
+		PagedList<Event> list = new PagedList<Event>(Event.class, null, null, "date", 2, 5);
+		List<Long> times = new ArrayList<Long>();
+		for (int i = 0; i < list.size(); i++) {
+			times.add(list.get(i).date.getTime());
+		}
+		assertEquals(Arrays.asList(1000L, 2000L, 3000L, 4000L, 5000L), times);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class ProjectionTest extends DbTestCase {
+
+	private long id;
+
+	@Before
+	public void setUp() {
+		Document document = new Document();
+		document.title = "title";
+		document.summary = "summary";
+		document.body = "body";
+		assertTrue(document.insert());
+		id = document.getId();
+	}
+
+	@Test
+	public void lazyColumnIsFetchedOnDemand() {
+		Document document = Table.find(Document.class, id);
+		assertEquals("title", document.title);
+		assertNull(document.body);
+		assertFalse(document.isLoaded("body"));
+
+		document.fetch("body");
+
+		assertTrue(document.isLoaded("body"));
+		assertEquals("body", document.body);
+	}
+
+	@Test
+	public void projectionLoadsOnlySelectedColumns() {
+		Document document = Query.from(Document.class).columns("title").first();
+		assertEquals("title", document.title);
+		assertNull(document.summary);
+		assertFalse(document.isLoaded("summary"));
+		assertTrue(document.isLoaded("title"));
+
+		document.fetch("summary");
+		assertEquals("summary", document.summary);
+		assertEquals("title", Table.all(Document.class, "title").get(0).title);
+	}
+
+	@Test
+	public void updateKeepsUnloadedColumns() {
+		Document document = Query.from(Document.class).columns("title").first();
+		document.title = "changed";
+		assertTrue(document.update());
+
+		Document loaded = Table.find(Document.class, id);
+		assertEquals("changed", loaded.title);
+		assertEquals("summary", loaded.summary);
+		loaded.fetch("body");
+		assertEquals("body", loaded.body);
+	}
+
+	@Test
+	public void fetchKeepsChangedField() {
+		Document document = Table.find(Document.class, id);
+		document.body = "new body";
+
+		document.fetch("body");
+
+		assertEquals("new body", document.body);
+		assertEquals(1, Table.count(Document.class, "body = ?", "body"));
+	}
+
+	@TableMetaData(version = 1)
+	public static class Document extends Table {
+
+		@Column
+		public String title;
+
+		@Column
+		public String summary;
+
+		@Column(lazy = true)
+		public String body;
+	}
+}
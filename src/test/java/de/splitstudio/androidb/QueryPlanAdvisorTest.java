@@ -0,0 +1,142 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class QueryPlanAdvisorTest extends DbTestCase {
+
+	@Test
+	public void flagsFullScansOfLargeTables() {
+		insertItems(10);
+		QueryPlanAdvisor advisor = new QueryPlanAdvisor(10);
+		Table.addListener(advisor);
+		try {
+			assertEquals(0, Query.from(Item.class).where("name = ?", "none").list().size());
+			assertEquals("item0", Table.find(Item.class, 1L).name);
+		} finally {
+			Table.removeListener(advisor);
+		}
+
+		assertEquals(2, advisor.getPlans().size());
+		List<QueryPlanAdvisor.Plan> flagged = advisor.getFlaggedPlans();
+		assertEquals(1, flagged.size());
+		assertEquals("SELECT _id, name FROM Item WHERE (name = ?)", flagged.get(0).getSql());
+		assertEquals(10, flagged.get(0).getTableRows());
+		assertEquals(Arrays.asList("name"), flagged.get(0).getSuggestedColumns());
+		assertEquals(Arrays.asList("Item: @Column(indexNames = \"idx_Item_name\") on name"), advisor
+				.getSuggestions());
+	}
+
+	@Test
+	public void doesNotFlagScansOfSmallTables() {
+		insertItems(9);
+		QueryPlanAdvisor advisor = new QueryPlanAdvisor(10);
+		Table.addListener(advisor);
+		try {
+			Query.from(Item.class).where("name = ?", "none").list();
+		} finally {
+			Table.removeListener(advisor);
+		}
+
+		assertEquals(1, advisor.getPlans().size());
+		assertTrue(advisor.getPlans().get(0).isFullScan());
+		assertEquals(0, advisor.getFlaggedPlans().size());
+	}
+
+	@Test
+	public void writesMakeStatisticsStale() {
+		insertItems(10);
+		QueryPlanAdvisor advisor = new QueryPlanAdvisor(0);
+		assertTrue(advisor.analyzeIfStale("Item"));
+		Table.addListener(advisor);
+		try {
+			assertTrue(new Item("one").save());
+			assertFalse(advisor.isStale("Item"));
+			assertTrue(new Item("two").save());
+		} finally {
+			Table.removeListener(advisor);
+		}
+
+		//more than 10% of the rows were written.
+		assertTrue(advisor.isStale("Item"));
+	}
+
+	@Test
+	public void countsPlaceholdersOutsideOfQuotes() {
+		assertEquals(2, QueryPlanAdvisor.countPlaceholders(
+			"SELECT '?', \"a?\", [b?] FROM Item WHERE name = ? AND `c?` IN (?)"));
+	}
+
+	@Test
+	public void analyzeDoesNotWaitForWriters() throws Exception {
+		assertTrue(new Item("milk").save());
+		QueryPlanAdvisor advisor = new QueryPlanAdvisor(0);
+		final DatabaseContext context = Table.getDbContext();
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				context.lockWriter();
+				try {
+					locked.countDown();
+					//a blocked analyzeIfStale() goes on afterwards, so the test fails instead of hanging.
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					//stop writing.
+				} finally {
+					context.unlockWriter();
+				}
+			}
+		};
+		writer.start();
+		locked.await();
+		try {
+			assertTrue(advisor.isStale("Item"));
+			assertFalse(advisor.analyzeIfStale("Item"));
+		} finally {
+			release.countDown();
+			writer.join();
+		}
+
+		assertTrue(advisor.analyzeIfStale("Item"));
+		assertFalse(advisor.isStale("Item"));
+		assertEquals("Item", queryForString("SELECT tbl FROM sqlite_stat1"));
+	}
+
+	private static void insertItems(final int count) {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < count; i++) {
+			items.add(new Item("item" + i));
+		}
+		assertEquals(count, Table.insertAll(items));
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.DbListener.Operation;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class QueryTest extends DbTestCase {
+
+	@Test
+	public void blobArguments() {
+		Token token = new Token(UUID.randomUUID(), "it's?");
+		assertTrue(token.save());
+		assertTrue(new Token(UUID.randomUUID(), "other").save());
+
+		Token found = Query.from(Token.class).where("name = 'it''s?' AND uuid = ?", token.uuid).first();
+		assertEquals(token, found);
+		assertEquals(1, Table.count(Token.class, "uuid = ?", token.uuid));
+		assertEquals(1, Query.from(Token.class).where("data = ?", (Object) token.data).count());
+		assertEquals(1, Table.deleteWhere(Token.class, "uuid = ?", token.uuid));
+		assertEquals(1, Table.count(Token.class, null));
+	}
+
+	@Test
+	public void pagesByBlobColumn() {
+		for (int i = 0; i < 5; i++) {
+			assertTrue(new Token(UUID.randomUUID(), "token" + i).save());
+		}
+
+		PagedList<Token> list = new PagedList<Token>(Token.class, null, null, "uuid", 2, 5);
+		Set<UUID> uuids = new HashSet<UUID>();
+		for (int i = 0; i < list.size(); i++) {
+			uuids.add(list.get(i).uuid);
+		}
+		assertEquals(5, uuids.size());
+	}
+
+	@Test
+	public void builderBindsAllArguments() {
+		for (int i = 0; i < 5; i++) {
+			assertTrue(new Purchase(i % 2 == 0 ? "shop" : "market", i).save());
+		}
+
+		Query<Purchase> query = Query.from(Purchase.class).columns("_id", "amount").where("amount > ?", 0)
+				.whereEquals("shop", "shop").orderBy("amount DESC").limit(1).offset(1);
+
+		assertEquals("SELECT _id, amount FROM Purchase WHERE (amount > ?) AND (shop = ?) ORDER BY amount DESC"
+				+ " LIMIT ? OFFSET ?", query.toSql());
+		assertEquals(Arrays.asList("0", "shop", "1", "1"), Arrays.asList(query.getArgs()));
+		List<Purchase> purchases = query.list();
+		assertEquals(1, purchases.size());
+		assertEquals(Integer.valueOf(2), purchases.get(0).amount);
+		assertNull(purchases.get(0).shop);
+		assertEquals(Integer.valueOf(4), Query.from(Purchase.class).orderBy("amount DESC").first().amount);
+	}
+
+	@Test
+	public void aggregatesArePushedDown() {
+		assertTrue(new Purchase("shop", 10).save());
+		assertTrue(new Purchase("shop", 30).save());
+		assertTrue(new Purchase("market", 5).save());
+		assertTrue(new Purchase("market", null).save());
+
+		assertEquals(4, Table.count(Purchase.class, null));
+		assertTrue(Table.exists(Purchase.class, "shop = ?", "market"));
+		assertFalse(Table.exists(Purchase.class, "shop = ?", "mall"));
+		assertEquals(45d, Table.sum(Purchase.class, "amount", null), 0d);
+		assertEquals(0d, Table.sum(Purchase.class, "amount", "shop = ?", "mall"), 0d);
+		assertEquals(Double.valueOf(15d), Table.avg(Purchase.class, "amount", null));
+		assertNull(Table.avg(Purchase.class, "amount", "shop = ?", "mall"));
+		assertEquals(Double.valueOf(5d), Table.min(Purchase.class, "amount", null));
+		assertEquals(Double.valueOf(30d), Table.max(Purchase.class, "amount", "shop = ?", "shop"));
+
+		Map<String, Double> totals = Table.groupBy(Purchase.class, "shop", "SUM(amount)", null);
+		assertEquals(2, totals.size());
+		assertEquals(Double.valueOf(40d), totals.get("shop"));
+		assertEquals(Double.valueOf(5d), totals.get("market"));
+	}
+
+	@Test
+	public void aggregatesReuseStatements() {
+		assertTrue(new Token(UUID.randomUUID(), "token").save());
+		DatabaseContext context = Table.getDbContext();
+		StatementCache statements = context.getStatements(context.getWriter());
+		//the thread holding the lock reads from the writer.
+		context.lockWriter();
+		try {
+			int cached = statements.size();
+			assertEquals(1, Table.count(Token.class, "name = ?", "token"));
+			assertEquals(0, Table.count(Token.class, "name = ?", "other"));
+			assertEquals(cached + 1, statements.size());
+		} finally {
+			context.unlockWriter();
+		}
+	}
+
+	@Test
+	public void cursorQueriesNotifyListeners() {
+		assertTrue(new Token(UUID.randomUUID(), "token").save());
+		final List<String> queries = new ArrayList<String>();
+		DbListener listener = new DbListener() {
+
+			public void onOperation(final Operation operation, final String tableName, final String sql,
+					final long nanos, final int rows, final long bytes) {
+				if (operation == Operation.QUERY || operation == Operation.FILL) {
+					queries.add(operation + " " + rows + " " + sql);
+				}
+			}
+		};
+		Table.addListener(listener);
+		try {
+			Cursor all = new Token().all();
+			assertTrue(all.moveToFirst());
+			all.close();
+			for (Token token : Table.stream(Token.class, "name = ?", new String[] { "token" })) {
+				assertEquals("token", token.name);
+			}
+			Query.from(Token.class).cursor().close();
+			new PagedList<Token>(Token.class).get(0);
+		} finally {
+			Table.removeListener(listener);
+		}
+
+		String page = "SELECT _id, uuid, name, data FROM Token ORDER BY _id LIMIT 50";
+		assertEquals(Arrays.asList("QUERY 1 SELECT _id, uuid, name, data FROM Token",
+			"QUERY 1 SELECT _id, uuid, name, data FROM Token WHERE name = ?",
+			"QUERY 0 SELECT _id, uuid, name, data FROM Token", "QUERY 1 SELECT COUNT(*) FROM Token",
+			"FILL 1 " + page, "QUERY 1 " + page), queries);
+	}
+
+	@Test
+	public void streamReportsWhenClosed() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(new Token(UUID.randomUUID(), "token" + i).save());
+		}
+		final List<Integer> rows = new ArrayList<Integer>();
+		DbListener listener = new DbListener() {
+
+			public void onOperation(final Operation operation, final String tableName, final String sql,
+					final long nanos, final int count, final long bytes) {
+				rows.add(count);
+			}
+		};
+		Table.addListener(listener);
+		try {
+			TableIterator<Token> stream = Query.from(Token.class).stream();
+			assertEquals("token0", stream.next().name);
+			assertEquals(Collections.emptyList(), rows);
+			stream.close();
+		} finally {
+			Table.removeListener(listener);
+		}
+		assertEquals(Collections.singletonList(1), rows);
+	}
+
+	@Test
+	public void iteratorClosesCursorWhenMapperFails() {
+		Cursor c = Table.getReadableDb().rawQuery("SELECT 1 AS _id", new String[0]);
+		try {
+			new TableIterator<Broken>(Broken.class, c, false);
+			fail("The schema of Broken can't be ensured");
+		} catch (RuntimeException e) {
+			//expected
+		}
+
+		assertTrue(c.isClosed());
+	}
+
+	/** A table, which can't be instantiated. */
+	public static class Broken extends Table {
+
+		public Broken() {
+			throw new IllegalStateException("broken");
+		}
+	}
+
+	@TableMetaData(version = 1)
+	public static class Purchase extends Table {
+
+		@Column
+		public String shop;
+
+		@Column
+		public Integer amount;
+
+		public Purchase() {
+		}
+
+		Purchase(final String shop, final Integer amount) {
+			this.shop = shop;
+			this.amount = amount;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.ManyToOne;
+import de.splitstudio.androidb.annotation.ManyToOne.Action;
+import de.splitstudio.androidb.annotation.OneToMany;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class RelationTest extends DbTestCase {
+
+	@Test
+	public void includeLoadsRelationsWithOneQueryEach() {
+		Category food = save(new Category("food"));
+		Category car = save(new Category("car"));
+		save(new Category("empty"));
+		for (int i = 0; i < 3; i++) {
+			save(new Expense(food, i));
+			save(new Expense(car, 10 + i));
+		}
+		final List<String> queries = new ArrayList<String>();
+		DbListener listener = new DbListener() {
+
+			public void onOperation(final Operation operation, final String tableName, final String sql,
+					final long nanos, final int rows, final long bytes) {
+				if (operation == Operation.QUERY) {
+					queries.add(tableName);
+				}
+			}
+		};
+
+		List<Expense> expenses;
+		List<Category> categories;
+		Table.addListener(listener);
+		try {
+			expenses = Query.from(Expense.class).include("category").orderBy("amount").list();
+			categories = Query.from(Category.class).include("expenses").orderBy("_id").list();
+		} finally {
+			Table.removeListener(listener);
+		}
+
+		assertEquals(6, expenses.size());
+		assertEquals("food", expenses.get(0).category.name);
+		assertSame(expenses.get(0).category, expenses.get(2).category);
+		assertEquals("car", expenses.get(5).category.name);
+		assertEquals(3, categories.get(0).expenses.size());
+		assertEquals(12, categories.get(1).expenses.get(2).amount);
+		assertEquals(0, categories.get(2).expenses.size());
+		assertEquals(4, queries.size());
+	}
+
+	@Test
+	public void deletingParentInvalidatesCachedChildren() {
+		Table.enableCache(10);
+		try {
+			Category food = save(new Category("food"));
+			Expense expense = save(new Expense(food, 1));
+			Expense cached = new Expense();
+			assertTrue(cached.find(expense.getId()));
+			assertEquals(food.getId(), cached.categoryId);
+
+			assertTrue(food.delete());
+
+			//the foreign key deleted it, without androiDB knowing the row.
+			assertFalse(new Expense().find(expense.getId()));
+		} finally {
+			Table.disableCache();
+		}
+	}
+
+	private static <T extends Table> T save(final T table) {
+		assertTrue(table.save());
+		return table;
+	}
+
+	@TableMetaData(version = 1)
+	public static class Category extends Table {
+
+		@Column
+		public String name;
+
+		@OneToMany(mappedBy = "category")
+		public List<Expense> expenses;
+
+		public Category() {
+		}
+
+		Category(final String name) {
+			this.name = name;
+		}
+	}
+
+	@TableMetaData(version = 1)
+	public static class Expense extends Table {
+
+		@Column
+		public Long categoryId;
+
+		@Column
+		public int amount;
+
+		@ManyToOne(column = "categoryId", onDelete = Action.CASCADE)
+		public Category category;
+
+		public Expense() {
+		}
+
+		Expense(final Category category, final int amount) {
+			this.categoryId = category.getId();
+			this.amount = amount;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import android.database.Cursor;
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class RowMapperTest extends DbTestCase {
+
+	@Test
+	public void readsAllFieldTypes() {
+		Sample sample = new Sample();
+		sample.l = Long.MAX_VALUE;
+		sample.i = Integer.MIN_VALUE;
+		sample.s = Short.MAX_VALUE;
+		sample.b = Byte.MIN_VALUE;
+		sample.c = 'x';
+		sample.d = 0.5d;
+		sample.f = 1.5f;
+		sample.boxedLong = 1L;
+		sample.boxedInt = 2;
+		sample.boxedShort = 3;
+		sample.boxedByte = 4;
+		sample.boxedDouble = 5.5d;
+		sample.boxedFloat = 6.5f;
+		sample.text = "text";
+		sample.blob = new byte[] { 1, 2, 3 };
+		assertTrue(sample.save());
+
+		Sample loaded = Table.find(Sample.class, sample.getId());
+		assertEquals(Long.MAX_VALUE, loaded.l);
+		assertEquals(Integer.MIN_VALUE, loaded.i);
+		assertEquals(Short.MAX_VALUE, loaded.s);
+		assertEquals(Byte.MIN_VALUE, loaded.b);
+		assertEquals('x', loaded.c);
+		assertEquals(0.5d, loaded.d, 0d);
+		assertEquals(1.5f, loaded.f, 0f);
+		assertEquals(Long.valueOf(1L), loaded.boxedLong);
+		assertEquals(Integer.valueOf(2), loaded.boxedInt);
+		assertEquals(Short.valueOf((short) 3), loaded.boxedShort);
+		assertEquals(Byte.valueOf((byte) 4), loaded.boxedByte);
+		assertEquals(Double.valueOf(5.5d), loaded.boxedDouble);
+		assertEquals(Float.valueOf(6.5f), loaded.boxedFloat);
+		assertEquals("text", loaded.text);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, loaded.blob);
+	}
+
+	@Test
+	public void readsNullIntoBoxedFields() {
+		assertTrue(new Sample().save());
+
+		Sample loaded = Table.all(Sample.class).get(0);
+		assertEquals(0L, loaded.l);
+		assertNull(loaded.boxedLong);
+		assertNull(loaded.boxedInt);
+		assertNull(loaded.boxedShort);
+		assertNull(loaded.boxedByte);
+		assertNull(loaded.boxedDouble);
+		assertNull(loaded.boxedFloat);
+		assertNull(loaded.text);
+		assertNull(loaded.blob);
+	}
+
+	@Test
+	public void mapsColumnsByName() {
+		Sample sample = new Sample();
+		sample.i = 42;
+		sample.text = "text";
+		assertTrue(sample.save());
+
+		Sample loaded;
+		Cursor c = Table.getReadableDb().rawQuery("SELECT text, i, _id FROM Sample", new String[0]);
+		try {
+			RowMapper<Sample> mapper = new RowMapper<Sample>(Sample.class, c);
+			assertTrue(c.moveToFirst());
+			loaded = mapper.map(c);
+		} finally {
+			c.close();
+		}
+
+		assertEquals(sample.getId(), loaded.getId());
+		assertEquals(42, loaded.i);
+		assertEquals("text", loaded.text);
+		assertTrue(loaded.isLoaded("i"));
+		assertFalse(loaded.isLoaded("l"));
+	}
+
+	@TableMetaData(version = 1)
+	public static class Sample extends Table {
+
+		@Column
+		public long l;
+
+		@Column
+		public int i;
+
+		@Column
+		public short s;
+
+		@Column
+		public byte b;
+
+		@Column
+		public char c;
+
+		@Column
+		public double d;
+
+		@Column
+		public float f;
+
+		@Column
+		public Long boxedLong;
+
+		@Column
+		public Integer boxedInt;
+
+		@Column
+		public Short boxedShort;
+
+		@Column
+		public Byte boxedByte;
+
+		@Column
+		public Double boxedDouble;
+
+		@Column
+		public Float boxedFloat;
+
+		@Column
+		public String text;
+
+		@Column
+		public byte[] blob;
+	}
+}
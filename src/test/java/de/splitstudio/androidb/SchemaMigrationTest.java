@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * Upgrades the table Item by reopening the database with a newer version of its class.
+ *
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SchemaMigrationTest extends DbTestCase {
+
+	@Test
+	public void upgradeAddsIndexedColumn() {
+		V1.Item item = new V1.Item();
+		item.name = "milk";
+		assertTrue(item.insert());
+		reopen();
+
+		V2.Item upgraded = Table.find(V2.Item.class, item.getId());
+		assertNotNull(upgraded);
+		assertEquals("milk", upgraded.name);
+		assertEquals(0, upgraded.price);
+		assertEquals("CREATE INDEX idx_item_price ON Item (price)", queryForString(
+			"SELECT sql FROM sqlite_master WHERE type = 'index' AND name = 'idx_item_price'"));
+
+		upgraded.price = 42;
+		assertTrue(upgraded.save());
+		assertEquals(1, Table.count(V2.Item.class, "price = ?", 42));
+	}
+
+	@Test
+	public void upgradeWithoutChangesKeepsTable() {
+		V2.Item item = new V2.Item();
+		item.name = "bread";
+		assertTrue(item.insert());
+		reopen();
+
+		assertTrue(!SchemaMigration.migrate(V2.Item.class));
+		assertEquals("bread", Table.find(V2.Item.class, item.getId()).name);
+	}
+
+	@Test
+	public void upgradeKeepsIndicesOfApp() {
+		V1.Item item = new V1.Item();
+		item.name = "milk";
+		assertTrue(item.insert());
+		Table.getDb().execSQL("CREATE INDEX item_by_name ON Item (name)");
+		Table.getDb().execSQL("CREATE INDEX idx_item_name ON Item (name)");
+		reopen();
+
+		assertEquals("milk", Table.find(V2.Item.class, item.getId()).name);
+		assertEquals("item_by_name", queryForString("SELECT name FROM sqlite_master WHERE name = 'item_by_name'"));
+		assertNull(queryForString("SELECT name FROM sqlite_master WHERE name = 'idx_item_name'"));
+	}
+
+	@Test
+	public void rebuildCreatesIndicesOfAppAgain() {
+		V2.Item item = new V2.Item();
+		item.name = "milk";
+		assertTrue(item.insert());
+		Table.getDb().execSQL("CREATE INDEX item_by_name ON Item (name)");
+		Table.getDb().execSQL("CREATE INDEX item_by_price ON Item (price)");
+		reopen();
+
+		//removing price needs a rebuild.
+		assertEquals("milk", Table.find(V3.Item.class, item.getId()).name);
+		assertEquals("CREATE INDEX item_by_name ON Item (name)", queryForString(
+			"SELECT sql FROM sqlite_master WHERE name = 'item_by_name'"));
+		assertNull(queryForString("SELECT name FROM sqlite_master WHERE name = 'item_by_price'"));
+		assertNull(queryForString("SELECT name FROM sqlite_master WHERE name = 'idx_item_price'"));
+	}
+
+	public static class V1 {
+
+		@TableMetaData(version = 1)
+		public static class Item extends Table {
+
+			@Column
+			public String name;
+		}
+	}
+
+	public static class V2 {
+
+		@TableMetaData(version = 2)
+		public static class Item extends Table {
+
+			@Column
+			public String name;
+
+			@Column(indexNames = "idx_item_price")
+			public int price;
+		}
+	}
+
+	public static class V3 {
+
+		@TableMetaData(version = 3)
+		public static class Item extends Table {
+
+			@Column
+			public String name;
+		}
+	}
+}
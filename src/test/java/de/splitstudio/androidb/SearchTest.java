@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.splitstudio.androidb.annotation.Column;
+import de.splitstudio.androidb.annotation.TableMetaData;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class SearchTest extends DbTestCase {
+
+	@Test
+	public void triggersKeepIndexInSync() {
+		Note note = new Note("shopping", "milk and bread");
+		assertTrue(note.insert());
+		assertTrue(new Note("todo", "call mom").insert());
+		assertEquals(1, Search.from(Note.class, "milk").count());
+
+		note.body = "cheese and bread";
+		assertTrue(note.update());
+		assertEquals(0, Search.from(Note.class, "milk").count());
+		assertEquals(1, Search.from(Note.class, "chees*").count());
+
+		//changes of other columns don't touch the index.
+		note.stars = 5;
+		assertTrue(note.update());
+		assertEquals(5, Table.search(Note.class, "title:shopping").get(0).stars);
+
+		assertTrue(note.delete());
+		assertEquals(0, Search.from(Note.class, "bread").count());
+		assertEquals(1, Search.from(Note.class, "mom").count());
+	}
+
+	@Test
+	public void hitsAreRanked() {
+		assertTrue(new Note("once", "milk and bread").insert());
+		assertTrue(new Note("often", "milk, milk and more milk").insert());
+		assertTrue(new Note("never", "bread").insert());
+
+		List<Search.Hit<Note>> hits = Search.from(Note.class, "milk").hits();
+		assertEquals(2, hits.size());
+		assertEquals("often", hits.get(0).getRow().title);
+		assertTrue(hits.get(0).getRank() > hits.get(1).getRank());
+		assertEquals("<b>milk</b> and bread", hits.get(1).getSnippet());
+		assertEquals("once", Search.from(Note.class, "milk").offset(1).limit(1).list().get(0).title);
+	}
+
+	@TableMetaData(version = 1)
+	public static class Note extends Table {
+
+		@Column(fullText = true)
+		public String title;
+
+		@Column(fullText = true)
+		public String body;
+
+		@Column
+		public int stars;
+
+		public Note() {
+		}
+
+		Note(final String title, final String body) {
+			this.title = title;
+			this.body = body;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class StatementCacheTest extends DbTestCase {
+
+	@Test
+	public void evictsLeastRecentlyUsedStatement() {
+		StatementCache statements = new StatementCache(Table.getDb(), 2);
+		try {
+			SQLiteStatement one = statements.get("SELECT 1");
+			SQLiteStatement two = statements.get("SELECT 2");
+			assertSame(one, statements.get("SELECT 1"));
+
+			statements.get("SELECT 3");
+
+			assertEquals(2, statements.size());
+			assertSame(one, statements.get("SELECT 1"));
+			assertNotSame(two, statements.get("SELECT 2"));
+			assertEquals(1L, statements.get("SELECT 1").simpleQueryForLong());
+		} finally {
+			statements.close();
+		}
+		assertEquals(0, statements.size());
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class TableSchemaTest {
+
+	@Test
+	public void schemaIsBuiltOncePerClass() {
+		assertSame(TableSchema.of(Event.class), TableSchema.of(Event.class));
+		assertSame(Event.class, TableSchema.of(Event.class).getTableClass());
+	}
+
+	@Test
+	public void primaryKeyComesFirst() {
+		TableSchema schema = TableSchema.of(Event.class);
+
+		assertEquals("Event", schema.getTableName());
+		assertEquals(Arrays.asList("_id", "date", "data"), Arrays.asList(schema.getColumnNames()));
+		for (ColumnDescriptor column : schema.getColumns()) {
+			assertSame(column, schema.getColumn(column.getName()));
+			assertEquals(column.getName(), schema.getColumnNames()[column.getPosition()]);
+		}
+		assertSame(schema.getColumns().get(0), schema.getPrimaryKey());
+		assertNull(schema.getColumn("missing"));
+	}
+
+	@Test
+	public void statementsUseColumnOrder() {
+		TableSchema schema = TableSchema.of(Event.class);
+
+		assertEquals("INSERT INTO Event (_id, date, data) VALUES (?, ?, ?)", schema.getInsertSql());
+		assertEquals("UPDATE Event SET date=?, data=? WHERE _id=?", schema.getUpdateSql());
+		assertEquals(Arrays.asList("_id", "data"), Arrays.asList(schema.projection("data")));
+	}
+}
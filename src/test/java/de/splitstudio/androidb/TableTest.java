@@ -0,0 +1,200 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class TableTest extends DbTestCase {
+
+	@Test
+	public void rolledBackChunkRestoresRows() {
+		Item first = new Item("first");
+		Item second = new Item("second");
+		second.setId(1000L);
+		Item duplicate = new Item("duplicate");
+		duplicate.setId(1000L);
+		try {
+			Table.insertAll(Arrays.asList(first, second, duplicate));
+			fail("Duplicate primary key should fail");
+		} catch (RuntimeException e) {
+			//expected
+		}
+
+		assertTrue(first.isNew());
+		assertEquals(Long.valueOf(1000L), second.getId());
+		assertEquals(0, Table.count(Item.class, null));
+		assertTrue(first.save());
+		assertEquals("first", Table.find(Item.class, first.getId()).name);
+	}
+
+	@Test
+	public void committedChunksKeepRows() {
+		Item first = new Item("first");
+		first.setId(1000L);
+		Item duplicate = new Item("duplicate");
+		duplicate.setId(1000L);
+		try {
+			Table.insertAll(Arrays.asList(first, duplicate), 1);
+			fail("Duplicate primary key should fail");
+		} catch (RuntimeException e) {
+			//expected
+		}
+
+		assertFalse(first.isNew());
+		assertEquals(1, Table.count(Item.class, null));
+		assertEquals("first", Table.find(Item.class, 1000L).name);
+	}
+
+	@Test
+	public void dateChangedInPlaceIsDirty() {
+		Event event = new Event();
+		event.date = new Date(1000L);
+		assertTrue(event.save());
+		assertEquals(Collections.emptyList(), event.getDirtyColumns());
+
+		event.date.setTime(2000L);
+		assertEquals(Collections.singletonList("date"), event.getDirtyColumns());
+		assertTrue(event.save());
+		assertEquals(new Date(2000L), Table.find(Event.class, event.getId()).date);
+	}
+
+	@Test
+	public void updateWritesOnlyChangedColumns() {
+		Event event = new Event();
+		event.date = new Date(1000L);
+		event.data = new byte[] { 1 };
+		assertTrue(event.save());
+		Event first = Table.find(Event.class, event.getId());
+		Event second = Table.find(Event.class, event.getId());
+		final List<String> updates = new ArrayList<String>();
+		DbListener listener = new DbListener() {
+
+			public void onOperation(final Operation operation, final String tableName, final String sql,
+					final long nanos, final int rows, final long bytes) {
+				if (operation == Operation.UPDATE) {
+					updates.add(sql);
+				}
+			}
+		};
+
+		first.date = new Date(2000L);
+		second.data = new byte[] { 2 };
+		assertEquals(Collections.singletonList("data"), second.getDirtyColumns());
+		Table.addListener(listener);
+		try {
+			assertTrue(first.update());
+			assertTrue(second.update());
+			//nothing changed anymore.
+			assertTrue(second.update());
+		} finally {
+			Table.removeListener(listener);
+		}
+
+		assertEquals(Arrays.asList("UPDATE Event SET date=? WHERE _id=?", "UPDATE Event SET data=? WHERE _id=?"),
+			updates);
+		Event loaded = Table.find(Event.class, event.getId());
+		assertEquals(new Date(2000L), loaded.date);
+		assertArrayEquals(new byte[] { 2 }, loaded.data);
+	}
+
+	@Test
+	public void hydrationOnlySkipsChecksOfHydratedClass() {
+		assertTrue(new Item("item").save());
+		Class<?> restored;
+		Event event;
+		Item item;
+		Class<?> previous = Table.setHydrating(Token.class);
+		try {
+			//like the constructor of a hydrated Token, which creates other tables.
+			event = new Event();
+			item = Table.find(Item.class, 1L);
+		} finally {
+			restored = Table.setHydrating(previous);
+		}
+
+		assertEquals(Token.class, restored);
+		assertTrue(event.save());
+		assertEquals("item", item.name);
+	}
+
+	@Test
+	public void deleteByIdsDeletesMoreIdsThanBindArgs() {
+		List<Item> items = new ArrayList<Item>();
+		for (int i = 0; i < 2 * Table.MAX_BIND_ARGS + 100; i++) {
+			items.add(new Item("item" + i));
+		}
+		assertEquals(items.size(), Table.insertAll(items));
+		//all but the last 10 items and an unknown id.
+		long[] ids = new long[items.size() - 10 + 1];
+		for (int i = 0; i < ids.length - 1; i++) {
+			ids[i] = items.get(i).getId();
+		}
+		ids[ids.length - 1] = 100000L;
+
+		assertEquals(ids.length - 1, Table.deleteByIds(Item.class, ids));
+		assertEquals(10, Table.count(Item.class, null));
+		assertEquals("item" + (items.size() - 10), Table.all(Item.class).get(0).name);
+	}
+
+	@Test
+	public void deleteByIdDeletesSingleRow() {
+		Item item = new Item("item");
+		assertTrue(item.save());
+
+		assertEquals(0, Table.deleteById(Item.class, item.getId() + 1));
+		assertEquals(1, Table.deleteById(Item.class, item.getId()));
+		assertFalse(Table.delete(Item.class, item.getId()));
+		assertEquals(0, Table.deleteByIds(Item.class));
+		assertEquals(0, Table.count(Item.class, null));
+	}
+
+	@Test
+	public void writesReuseCompiledStatements() {
+		assertTrue(new Item("first").save());
+		Item item = new Item("second");
+		assertTrue(item.save());
+		item.name = "changed";
+		assertTrue(item.save());
+		StatementCache statements = Table.getDbContext().getStatements();
+		int cached = statements.size();
+
+		for (int i = 0; i < 10; i++) {
+			Item other = new Item("item" + i);
+			assertTrue(other.save());
+			other.name = "changed" + i;
+			assertTrue(other.save());
+		}
+
+		assertEquals(cached, statements.size());
+		assertEquals(1, Table.count(Item.class, "name = ?", "changed9"));
+	}
+}
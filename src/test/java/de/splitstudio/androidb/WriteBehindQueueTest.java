@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2011, Matthias Brandt
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package de.splitstudio.androidb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Matthias Brandt
+ * @since 2011
+ */
+public class WriteBehindQueueTest extends DbTestCase {
+
+	@Before
+	public void setUp() {
+		//long enough to collect all operations of a test in one batch.
+		Table.setWriteQueue(new WriteBehindQueue(100, 100, 500L, 0L));
+	}
+
+	@Test
+	public void failedInnerTransactionFailsBatch() throws InterruptedException {
+		Item saved = new Item("saved");
+		Future<Boolean> save = saved.saveAsync();
+		final Item first = new Item("first");
+		first.setId(1000L);
+		final Item duplicate = new Item("duplicate");
+		duplicate.setId(1000L);
+		Future<Integer> insertAll = Table.getWriteQueue().submit(new Callable<Integer>() {
+			public Integer call() {
+				return Table.insertAll(Arrays.asList(first, duplicate));
+			}
+		});
+
+		assertFailed(insertAll);
+		assertFailed(save);
+		assertTrue(saved.isNew());
+		assertEquals(0, Table.count(Item.class, null));
+	}
+
+	@Test
+	public void failedOperationKeepsBatch() throws Exception {
+		Item saved = new Item("saved");
+		Future<Boolean> save = saved.saveAsync();
+		Future<Object> failing = Table.getWriteQueue().submit(new Callable<Object>() {
+			public Object call() {
+				throw new IllegalStateException("failed");
+			}
+		});
+
+		assertFailed(failing);
+		assertTrue(save.get());
+		assertEquals("saved", Table.find(Item.class, saved.getId()).name);
+	}
+
+	private static void assertFailed(final Future<?> future) throws InterruptedException {
+		try {
+			future.get();
+			fail("Operation should have failed");
+		} catch (ExecutionException e) {
+			//expected
+		}
+	}
+}